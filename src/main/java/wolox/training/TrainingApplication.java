@@ -2,11 +2,15 @@ package wolox.training;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import wolox.training.config.OpenInViewDefaults;
+import wolox.training.config.StartupTimingListener;
 
 @SpringBootApplication
 public class TrainingApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(TrainingApplication.class, args);
+        SpringApplication application = new SpringApplication(TrainingApplication.class);
+        application.addListeners(new StartupTimingListener(), new OpenInViewDefaults());
+        application.run(args);
     }
 }
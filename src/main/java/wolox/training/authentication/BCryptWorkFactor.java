@@ -0,0 +1,91 @@
+package wolox.training.authentication;
+
+import com.google.common.base.Preconditions;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks the BCrypt cost used for new password hashes. Once the application is ready it measures
+ * how long a verify takes on the current machine and keeps the highest cost that stays under the
+ * target latency, without holding up the rest of the startup.
+ * The cost travels inside every hash ({@code $2a$<cost>$...}), so hashes made with another cost
+ * can be detected and rehashed on the next successful login.
+ */
+@Component
+public class BCryptWorkFactor {
+
+    private static final int DEFAULT_STRENGTH = 10;
+    private static final int MIN_STRENGTH = 4;
+    private static final int MAX_STRENGTH = 31;
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+    private static final Pattern HASH_PATTERN = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private static volatile int currentStrength = DEFAULT_STRENGTH;
+
+    @Value("${password.bcrypt.target-millis:75}")
+    private long targetMillis;
+
+    @Value("${password.bcrypt.min-strength:10}")
+    private int minStrength;
+
+    @Value("${password.bcrypt.max-strength:16}")
+    private int maxStrength;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void calibrate() {
+        currentStrength = calibrate(targetMillis, minStrength, maxStrength);
+    }
+
+    public static int current() {
+        return currentStrength;
+    }
+
+    public static int strengthOf(String hash) {
+        if (hash == null) {
+            return -1;
+        }
+
+        Matcher matcher = HASH_PATTERN.matcher(hash);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    public static boolean needsRehash(String hash) {
+        return strengthOf(hash) != currentStrength;
+    }
+
+    static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        Preconditions.checkArgument(
+            MIN_STRENGTH <= minStrength && minStrength <= maxStrength && maxStrength <= MAX_STRENGTH,
+            "BCrypt strength bounds must satisfy 4 <= min <= max <= 31");
+
+        long targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+
+        // The first run only warms up the JIT, its timing is not representative
+        verifyNanos(minStrength);
+
+        int strength = minStrength;
+        long elapsed = verifyNanos(strength);
+
+        // Every extra round doubles the work, so stop before the next one overshoots the target
+        while (strength < maxStrength && elapsed * 2 <= targetNanos) {
+            strength++;
+            elapsed = verifyNanos(strength);
+        }
+
+        return strength;
+    }
+
+    private static long verifyNanos(int strength) {
+        String hash = BCrypt.hashpw(CALIBRATION_PASSWORD, BCrypt.gensalt(strength));
+
+        long start = System.nanoTime();
+        BCrypt.checkpw(CALIBRATION_PASSWORD, hash);
+        return System.nanoTime() - start;
+    }
+}
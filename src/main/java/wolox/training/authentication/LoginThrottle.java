@@ -0,0 +1,235 @@
+package wolox.training.authentication;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import wolox.training.events.EntityChangeEvent;
+import wolox.training.events.EntityChangeEvent.Kind;
+import wolox.training.exceptions.TooManyFailedLoginsException;
+import wolox.training.models.Names;
+import wolox.training.models.User;
+import wolox.training.repositories.UserRepository;
+
+/**
+ * Keeps failed logins from costing a user lookup or a BCrypt verify. Failures drain one token
+ * bucket per username and client address, and one per client address. Once either is empty,
+ * attempts are rejected before doing any work until it refills. Buckets of a username are kept
+ * per address, so failures from elsewhere can't lock its owner out. A looser bucket per username
+ * alone stops guessing from rotating addresses: once it is empty, each further failure rejects
+ * attempts on the username for a delay that doubles up to a maximum, so its owner waits at most
+ * that long. Usernames found missing are remembered for a while, so retrying them skips the
+ * database. Successful logins never consume tokens.
+ */
+@Component
+public class LoginThrottle {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${training.auth.throttle.username-burst:10}")
+    private int usernameBurst;
+
+    @Value("${training.auth.throttle.address-burst:50}")
+    private int addressBurst;
+
+    @Value("${training.auth.throttle.account-burst:100}")
+    private int accountBurst;
+
+    @Value("${training.auth.throttle.account-backoff-millis:1000}")
+    private long accountBackoffMillis;
+
+    @Value("${training.auth.throttle.account-max-backoff-millis:60000}")
+    private long accountMaxBackoffMillis;
+
+    @Value("${training.auth.throttle.refill-per-minute:5}")
+    private double refillPerMinute;
+
+    @Value("${training.auth.throttle.max-entries:100000}")
+    private long maxEntries;
+
+    @Value("${training.auth.unknown-usernames.max-entries:10000}")
+    private long maxUnknownUsernames;
+
+    @Value("${training.auth.unknown-usernames.ttl-seconds:300}")
+    private long unknownUsernamesTtlSeconds;
+
+    private Ticker ticker = Ticker.systemTicker();
+
+    private Cache<String, Bucket> usernames;
+
+    private Cache<String, Bucket> addresses;
+
+    private Cache<String, Backoff> accounts;
+
+    private Cache<String, Boolean> unknownUsernames;
+
+    @PostConstruct
+    public void init() {
+        // A bucket left alone until full again behaves like a new one, so it can be dropped
+        long idleNanos = (long) (Math.max(Math.max(usernameBurst, addressBurst), accountBurst)
+            * TimeUnit.MINUTES.toNanos(1) / refillPerMinute)
+            + TimeUnit.MILLISECONDS.toNanos(accountMaxBackoffMillis);
+
+        usernames = buckets(idleNanos);
+        addresses = buckets(idleNanos);
+        accounts = buckets(idleNanos);
+        unknownUsernames = CacheBuilder.newBuilder()
+            .maximumSize(maxUnknownUsernames)
+            .expireAfterWrite(unknownUsernamesTtlSeconds, TimeUnit.SECONDS)
+            .ticker(ticker)
+            .build();
+    }
+
+    /**
+     * @param address the client address, null when unknown
+     * @throws TooManyFailedLoginsException when the username or the address ran out of attempts,
+     * or the username is backing off
+     */
+    public void checkAllowed(String username, String address) {
+        long now = ticker.read();
+        Backoff backoff = accounts.getIfPresent(key(username));
+
+        if (!hasTokens(usernames, key(username, address), now)
+            || (address != null && !hasTokens(addresses, address, now))
+            || (backoff != null && !backoff.allows(now))) {
+            throw new TooManyFailedLoginsException("Too many failed logins, try again later");
+        }
+    }
+
+    public void recordFailure(String username, String address) {
+        long now = ticker.read();
+        take(usernames, key(username, address), usernameBurst, now);
+
+        if (address != null) {
+            take(addresses, address, addressBurst, now);
+        }
+
+        accounts.asMap()
+            .computeIfAbsent(key(username), k -> new Backoff(bucket(accountBurst, now)))
+            .recordFailure(now, TimeUnit.MILLISECONDS.toNanos(accountBackoffMillis),
+                TimeUnit.MILLISECONDS.toNanos(accountMaxBackoffMillis));
+    }
+
+    public boolean isUnknown(String username) {
+        return unknownUsernames.getIfPresent(key(username)) != null;
+    }
+
+    public void recordUnknown(String username) {
+        unknownUsernames.put(key(username), Boolean.TRUE);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.getType() != User.class || event.getKind() == Kind.DELETED) {
+            return;
+        }
+
+        if (event.getKind() == Kind.RESET) {
+            unknownUsernames.invalidateAll();
+        } else if (unknownUsernames.size() > 0) {
+            // New and renamed users may take a username remembered as unknown, other updates
+            // such as adding a book leave their username as it was
+            unknownUsernames.invalidateAll(
+                userRepository.findNormalizedUsernamesByIdIn(event.getIds()));
+        }
+    }
+
+    private static String key(String username) {
+        return Strings.nullToEmpty(Names.normalize(username));
+    }
+
+    // Addresses never contain '@'
+    private static String key(String username, String address) {
+        return key(username) + '@' + Strings.nullToEmpty(address);
+    }
+
+    private <T> Cache<String, T> buckets(long idleNanos) {
+        return CacheBuilder.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterAccess(idleNanos, TimeUnit.NANOSECONDS)
+            .ticker(ticker)
+            .build();
+    }
+
+    private static boolean hasTokens(Cache<String, Bucket> buckets, String key, long now) {
+        Bucket bucket = buckets.getIfPresent(key);
+        return bucket == null || bucket.available(now) >= 1;
+    }
+
+    private void take(Cache<String, Bucket> buckets, String key, int burst, long now) {
+        buckets.asMap().computeIfAbsent(key, k -> bucket(burst, now)).take(now);
+    }
+
+    private Bucket bucket(int burst, long now) {
+        return new Bucket(burst, refillPerMinute / TimeUnit.MINUTES.toNanos(1), now);
+    }
+
+    private static final class Backoff {
+
+        private final Bucket bucket;
+        private int doublings;
+        private long blockedUntilNanos;
+
+        private Backoff(Bucket bucket) {
+            this.bucket = bucket;
+        }
+
+        private synchronized boolean allows(long now) {
+            return now >= blockedUntilNanos;
+        }
+
+        private synchronized void recordFailure(long now, long delayNanos, long maxDelayNanos) {
+            if (bucket.take(now)) {
+                doublings = 0;
+            } else {
+                long delay = Math.min(maxDelayNanos, delayNanos << Math.min(doublings, 20));
+                blockedUntilNanos = Math.max(blockedUntilNanos, now + delay);
+                doublings++;
+            }
+        }
+    }
+
+    private static final class Bucket {
+
+        private final double capacity;
+        private final double refillPerNano;
+        private double tokens;
+        private long updatedNanos;
+
+        private Bucket(double capacity, double refillPerNano, long now) {
+            this.capacity = capacity;
+            this.refillPerNano = refillPerNano;
+            this.tokens = capacity;
+            this.updatedNanos = now;
+        }
+
+        private synchronized double available(long now) {
+            refill(now);
+            return tokens;
+        }
+
+        // Returns whether a whole token was left to take
+        private synchronized boolean take(long now) {
+            refill(now);
+            boolean available = tokens >= 1;
+            tokens = Math.max(0, tokens - 1);
+            return available;
+        }
+
+        private void refill(long now) {
+            // Threads may arrive with a slightly older reading
+            if (now > updatedNanos) {
+                tokens = Math.min(capacity, tokens + (now - updatedNanos) * refillPerNano);
+                updatedNanos = now;
+            }
+        }
+    }
+}
@@ -10,9 +10,11 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.stereotype.Component;
 import wolox.training.models.User;
 import wolox.training.repositories.UserRepository;
+import wolox.training.services.UserLookupService;
 
 @Component
 public class UserAndPasswordAuthenticationProvider implements AuthenticationProvider {
@@ -20,25 +22,44 @@ public class UserAndPasswordAuthenticationProvider implements AuthenticationProv
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserLookupService userLookupService;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
     @Override
     public Authentication authenticate(Authentication authentication)
         throws AuthenticationException {
         String username = authentication.getName();
         String password = authentication.getCredentials().toString();
+        String address = authentication.getDetails() instanceof WebAuthenticationDetails
+            ? ((WebAuthenticationDetails) authentication.getDetails()).getRemoteAddress() : null;
+
+        loginThrottle.checkAllowed(username, address);
 
-        Optional<User> userResult = userRepository.findFirstByUsername(username);
+        Optional<User> userResult = loginThrottle.isUnknown(username) ? Optional.empty()
+            : userLookupService.findByUsername(username);
 
         if (!userResult.isPresent()) {
+            loginThrottle.recordUnknown(username);
+            loginThrottle.recordFailure(username, address);
             throw new UsernameNotFoundException("User not found");
         }
 
         User user = userResult.get();
 
         if (BCrypt.checkpw(password, user.getPassword())) {
+            if (BCryptWorkFactor.needsRehash(user.getPassword())) {
+                user.setPassword(password);
+                userRepository.save(user);
+            }
+
             return new UsernamePasswordAuthenticationToken(username, password,
                 Collections.emptyList());
         }
 
+        loginThrottle.recordFailure(username, address);
         throw new BadCredentialsException("Provide password doesn't match user's password");
     }
 
@@ -0,0 +1,134 @@
+package wolox.training.config;
+
+import com.google.common.base.Preconditions;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit that follows the latency of the work it admits, AIMD style. Latencies are
+ * gathered in windows of {@code windowSize} samples, and the baseline is the lowest 90th
+ * percentile of the last few windows. A share of very fast responses, such as cache hits, doesn't
+ * make the usual ones look slow, and a baseline lowered by a burst of them recovers once those
+ * windows are gone. While latencies stay within {@code tolerance} times the baseline and the limit
+ * is actually in use, it grows by about one per limit's worth of requests. A window whose
+ * percentile is slower than that, or with failed requests, multiplies it by the backoff ratio.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double PERCENTILE = 0.9;
+
+    // Windows the baseline is taken from, so it adapts to a lasting change in about as many
+    private static final int BASELINE_WINDOWS = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile double limit;
+
+    private final long[] window;
+    private int windowSamples;
+    private boolean windowFailed;
+
+    private final long[] percentiles = new long[BASELINE_WINDOWS];
+    private int nextPercentile;
+    private int knownPercentiles;
+    private long baselineNanos;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance,
+        double backoffRatio, int windowSize) {
+        Preconditions.checkArgument(1 <= minLimit && minLimit <= initialLimit
+            && initialLimit <= maxLimit, "Limits must satisfy 1 <= min <= initial <= max");
+        Preconditions.checkArgument(tolerance >= 1, "Latency tolerance can't be below 1");
+        Preconditions.checkArgument(backoffRatio > 0 && backoffRatio < 1,
+            "Backoff ratio must be between 0 and 1");
+        Preconditions.checkArgument(windowSize > 0, "Window size must be positive");
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.window = new long[windowSize];
+    }
+
+    /**
+     * @return whether the request fits, in which case one of the {@code release} methods must
+     * follow
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+
+            if (current >= (int) limit) {
+                rejected.incrementAndGet();
+                return false;
+            }
+
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees the slot of a request whose latency says nothing about the load, e.g. one answered
+     * before reaching a handler.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * @param failed whether the request ended in a way that signals overload
+     */
+    public synchronized void release(long latencyNanos, boolean failed) {
+        int used = inFlight.getAndDecrement();
+
+        // Only a limit in use proves it is enough, an idle one would grow without bound
+        if (knownPercentiles > 0 && !failed && latencyNanos <= baselineNanos * tolerance
+            && used * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+
+        window[windowSamples++] = latencyNanos;
+        windowFailed |= failed;
+
+        if (windowSamples == window.length) {
+            closeWindow();
+        }
+    }
+
+    private void closeWindow() {
+        long[] sorted = window.clone();
+        Arrays.sort(sorted);
+        long percentile = sorted[(int) Math.ceil(PERCENTILE * sorted.length) - 1];
+
+        if (windowFailed || (knownPercentiles > 0 && percentile > baselineNanos * tolerance)) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        }
+
+        percentiles[nextPercentile] = percentile;
+        nextPercentile = (nextPercentile + 1) % BASELINE_WINDOWS;
+        knownPercentiles = Math.min(knownPercentiles + 1, BASELINE_WINDOWS);
+        baselineNanos = Arrays.stream(percentiles, 0, knownPercentiles).min().getAsLong();
+        windowSamples = 0;
+        windowFailed = false;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,69 @@
+package wolox.training.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import wolox.training.config.ConcurrencyLimitFilter.Group;
+
+@Configuration
+@ConditionalOnProperty(name = "training.concurrency.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+        Environment environment, MeterRegistry meterRegistry) {
+        int minLimit = environment.getProperty("training.concurrency.min-limit", Integer.class, 1);
+        double tolerance = environment
+            .getProperty("training.concurrency.latency-tolerance", Double.class, 2.0);
+        double backoffRatio = environment
+            .getProperty("training.concurrency.backoff-ratio", Double.class, 0.9);
+        int windowSize = environment
+            .getProperty("training.concurrency.window-size", Integer.class, 100);
+        long retryAfterSeconds = environment
+            .getProperty("training.concurrency.retry-after-seconds", Long.class, 1L);
+        Map<Group, AdaptiveConcurrencyLimit> limits = new EnumMap<>(Group.class);
+
+        for (Group group : Group.values()) {
+            String name = group.name().toLowerCase(Locale.ROOT);
+            String prefix = "training.concurrency." + name + ".";
+            AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(
+                environment.getProperty(prefix + "initial-limit", Integer.class,
+                    group.getDefaultInitialLimit()),
+                minLimit,
+                environment.getProperty(prefix + "max-limit", Integer.class,
+                    group.getDefaultMaxLimit()),
+                tolerance, backoffRatio, windowSize);
+            limits.put(group, limit);
+
+            Tags tags = Tags.of("group", name);
+            Gauge.builder("training.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .tags(tags)
+                .register(meterRegistry);
+            Gauge.builder("training.concurrency.in.flight", limit,
+                AdaptiveConcurrencyLimit::getInFlight)
+                .tags(tags)
+                .register(meterRegistry);
+            FunctionCounter.builder("training.concurrency.rejected", limit,
+                AdaptiveConcurrencyLimit::getRejected)
+                .tags(tags)
+                .register(meterRegistry);
+        }
+
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+            new ConcurrencyLimitFilter(limits, retryAfterSeconds));
+        // Ahead of Spring Security, so shed requests don't pay for authentication
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 10);
+        return registration;
+    }
+}
@@ -0,0 +1,172 @@
+package wolox.training.config;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * Admits each request only while its group is under its {@link AdaptiveConcurrencyLimit}, and
+ * answers the rest right away with a 503 and {@code Retry-After} instead of queueing them.
+ * Async requests keep their slot until they complete, timed out and failed ones release it
+ * without a sample like requests that throw. Only 2xx and 5xx responses of requests that reached
+ * a handler feed the limit their latency: the ones answered by Spring Security or without a
+ * handler, such as failed logins and 404s, say nothing about the cost of the work it guards.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    public enum Group {
+        READS(100, 400), IMPORTS(10, 40), WRITES(20, 100);
+
+        private final int defaultInitialLimit;
+        private final int defaultMaxLimit;
+
+        Group(int defaultInitialLimit, int defaultMaxLimit) {
+            this.defaultInitialLimit = defaultInitialLimit;
+            this.defaultMaxLimit = defaultMaxLimit;
+        }
+
+        public int getDefaultInitialLimit() {
+            return defaultInitialLimit;
+        }
+
+        public int getDefaultMaxLimit() {
+            return defaultMaxLimit;
+        }
+    }
+
+    // Missing books are fetched from Open Library, much slower than any other read
+    private static final String IMPORTS_PATH = "/api/books/isbn/";
+
+    private static final String ACTUATOR_PATH = "/actuator";
+
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    private final Map<Group, AdaptiveConcurrencyLimit> limits;
+
+    private final long retryAfterSeconds;
+
+    public ConcurrencyLimitFilter(Map<Group, AdaptiveConcurrencyLimit> limits,
+        long retryAfterSeconds) {
+        this.limits = limits;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Health checks must still answer while the API sheds load
+        return urlPathHelper.getPathWithinApplication(request).startsWith(ACTUATOR_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+        FilterChain filterChain) throws ServletException, IOException {
+        AdaptiveConcurrencyLimit limit = limits.get(classify(request));
+
+        if (!limit.tryAcquire()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            limit.release();
+            throw e;
+        }
+
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext()
+                .addListener(new AsyncRelease(limit, request, response, start));
+        } else {
+            release(limit, request, response, start);
+        }
+    }
+
+    private static void release(AdaptiveConcurrencyLimit limit, HttpServletRequest request,
+        HttpServletResponse response, long start) {
+        int status = response.getStatus();
+
+        if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) != null
+            && (HttpStatus.Series.SUCCESSFUL.value() == status / 100
+            || HttpStatus.Series.SERVER_ERROR.value() == status / 100)) {
+            limit.release(System.nanoTime() - start,
+                status == HttpStatus.SERVICE_UNAVAILABLE.value()
+                    || status == HttpStatus.GATEWAY_TIMEOUT.value());
+        } else {
+            limit.release();
+        }
+    }
+
+    Group classify(HttpServletRequest request) {
+        String method = request.getMethod();
+
+        if (!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)
+            && !HttpMethod.OPTIONS.matches(method)) {
+            return Group.WRITES;
+        }
+
+        return urlPathHelper.getPathWithinApplication(request).startsWith(IMPORTS_PATH)
+            ? Group.IMPORTS : Group.READS;
+    }
+
+    // The container may notify a timeout or error and then the completion, only the first counts
+    private static final class AsyncRelease implements AsyncListener {
+
+        private final AdaptiveConcurrencyLimit limit;
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final long start;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private AsyncRelease(AdaptiveConcurrencyLimit limit, HttpServletRequest request,
+            HttpServletResponse response, long start) {
+            this.limit = limit;
+            this.request = request;
+            this.response = response;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                release(limit, request, response, start);
+            }
+        }
+
+        // A timed out wait, such as an import long poll, took as long as it was allowed to
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                limit.release();
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                limit.release();
+            }
+        }
+
+        // Listeners don't carry over to a new async cycle of the same request
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
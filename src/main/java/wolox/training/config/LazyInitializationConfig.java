@@ -0,0 +1,58 @@
+package wolox.training.config;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.Schedules;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+@Configuration
+@ConditionalOnProperty(name = "training.startup.lazy-init", havingValue = "true")
+public class LazyInitializationConfig {
+
+    @Bean
+    public static BeanFactoryPostProcessor lazyInitialization(Environment environment) {
+        Set<String> eagerBeans = new HashSet<>(Arrays.asList(
+            environment.getProperty("training.startup.eager-beans", String[].class,
+                new String[0])));
+
+        return beanFactory -> {
+            for (String beanName : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+
+                if (beanDefinition.getRole() == BeanDefinition.ROLE_APPLICATION
+                    && !eagerBeans.contains(beanName)
+                    && !hasScheduledMethods(beanDefinition, beanFactory.getBeanClassLoader())) {
+                    beanDefinition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    /**
+     * Scheduled methods are only registered once their bean is created, a lazy one would leave
+     * its job idle until something happens to use the bean.
+     */
+    private static boolean hasScheduledMethods(BeanDefinition beanDefinition,
+        ClassLoader classLoader) {
+        String className = beanDefinition.getBeanClassName();
+
+        if (className == null) {
+            return false;
+        }
+
+        return Arrays.stream(ReflectionUtils.getUniqueDeclaredMethods(
+            ClassUtils.resolveClassName(className, classLoader)))
+            .anyMatch(method -> AnnotatedElementUtils.hasAnnotation(method, Scheduled.class)
+                || AnnotatedElementUtils.hasAnnotation(method, Schedules.class));
+    }
+}
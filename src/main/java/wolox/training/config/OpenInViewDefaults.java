@@ -0,0 +1,34 @@
+package wolox.training.config;
+
+import java.util.Collections;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+/**
+ * Turns {@code spring.jpa.open-in-view} off unless it is set, when read replicas are configured.
+ * With it on, a request keeps the connection of its first transaction until the response is
+ * written, so later transactions reuse a connection routed for the first one. Repository methods
+ * whose results are serialized fetch the associations in their JSON, such as the books of a user.
+ * Like {@link StartupTimingListener}, it has to be added to the SpringApplication before it runs.
+ */
+public class OpenInViewDefaults
+    implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+
+    private static final String OPEN_IN_VIEW = "spring.jpa.open-in-view";
+
+    @Override
+    public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+        ConfigurableEnvironment environment = event.getEnvironment();
+
+        if (!environment.containsProperty(OPEN_IN_VIEW) && needsShortConnections(environment)) {
+            environment.getPropertySources().addLast(new MapPropertySource("openInViewDefaults",
+                Collections.<String, Object>singletonMap(OPEN_IN_VIEW, false)));
+        }
+    }
+
+    private static boolean needsShortConnections(ConfigurableEnvironment environment) {
+        return environment.containsProperty("training.datasource.replica-urls");
+    }
+}
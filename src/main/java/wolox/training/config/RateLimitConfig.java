@@ -0,0 +1,44 @@
+package wolox.training.config;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import wolox.training.config.RateLimitFilter.Group;
+
+@Configuration
+@ConditionalOnProperty(name = "training.rate-limit.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class RateLimitConfig {
+
+    private final Map<Group, TokenBuckets> buckets = new EnumMap<>(Group.class);
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(Environment environment) {
+        for (Group group : Group.values()) {
+            String prefix = "training.rate-limit." + group.name().toLowerCase(Locale.ROOT) + ".";
+            buckets.put(group, new TokenBuckets(
+                environment.getProperty(prefix + "rate-per-second", Double.class,
+                    group.getDefaultRatePerSecond()),
+                environment.getProperty(prefix + "burst", Integer.class,
+                    group.getDefaultBurst())));
+        }
+
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(
+            new RateLimitFilter(buckets));
+        // After Spring Security, so authenticated clients are limited per user
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 10);
+        return registration;
+    }
+
+    @Scheduled(fixedDelayString = "${training.rate-limit.sweep-millis:60000}")
+    public void evictIdleBuckets() {
+        buckets.values().forEach(TokenBuckets::evictIdle);
+    }
+}
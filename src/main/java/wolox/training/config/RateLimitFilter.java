@@ -0,0 +1,118 @@
+package wolox.training.config;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * Limits the request rate of every client per group of endpoints, with one token bucket per
+ * authenticated user, or per address for requests without a user. Every response tells the
+ * client how much is left through the {@code X-RateLimit-*} headers, and requests over the rate
+ * get a 429 with {@code Retry-After}.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public enum Group {
+        SEARCHES(5, 20), READS(20, 100), WRITES(5, 20);
+
+        private final double defaultRatePerSecond;
+        private final int defaultBurst;
+
+        Group(double defaultRatePerSecond, int defaultBurst) {
+            this.defaultRatePerSecond = defaultRatePerSecond;
+            this.defaultBurst = defaultBurst;
+        }
+
+        public double getDefaultRatePerSecond() {
+            return defaultRatePerSecond;
+        }
+
+        public int getDefaultBurst() {
+            return defaultBurst;
+        }
+    }
+
+    public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String RESET_HEADER = "X-RateLimit-Reset";
+
+    private static final String ACTUATOR_PATH = "/actuator";
+
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    private final Map<Group, TokenBuckets> buckets;
+
+    public RateLimitFilter(Map<Group, TokenBuckets> buckets) {
+        this.buckets = buckets;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return urlPathHelper.getPathWithinApplication(request).startsWith(ACTUATOR_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+        FilterChain filterChain) throws ServletException, IOException {
+        TokenBuckets groupBuckets = buckets.get(classify(request));
+        TokenBuckets.Result result = groupBuckets.take(client(request));
+
+        response.setHeader(LIMIT_HEADER, String.valueOf(groupBuckets.getBurst()));
+        response.setHeader(REMAINING_HEADER, String.valueOf(result.getRemaining()));
+        response.setHeader(RESET_HEADER, String.valueOf(seconds(result.getResetNanos())));
+
+        if (!result.isAllowed()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                String.valueOf(seconds(result.getRetryAfterNanos())));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    Group classify(HttpServletRequest request) {
+        String method = request.getMethod();
+
+        if (!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)
+            && !HttpMethod.OPTIONS.matches(method)) {
+            return Group.WRITES;
+        }
+
+        String path = urlPathHelper.getPathWithinApplication(request);
+        path = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+
+        // Listings with filters and the other endpoints that scan many rows
+        return "/api/books".equals(path) || "/api/users".equals(path)
+            || path.endsWith("/search") || path.endsWith("/facets") || path.endsWith("/suggest")
+            ? Group.SEARCHES : Group.READS;
+    }
+
+    // Runs after Spring Security, so the user is already known
+    private static String client(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication != null && authentication.isAuthenticated()
+            && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+
+        return "address:" + request.getRemoteAddr();
+    }
+
+    private static long seconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,65 @@
+package wolox.training.config;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Keeps the reads of a client on the primary for a while after it wrote something, so it sees
+ * its own changes even if the replicas lag behind. Clients are told apart by principal, or by
+ * address when anonymous. Writing requests stay on the primary from the start, also for the
+ * read-only lookups they make before writing. Async requests are routed again when their result
+ * is dispatched, their first thread is released meanwhile.
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesInterceptor(long windowMillis) {
+        recentWriters = CacheBuilder.newBuilder()
+            .expireAfterWrite(windowMillis, TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+        Object handler) {
+        if (!isRead(request) || recentWriters.getIfPresent(clientOf(request)) != null) {
+            ReplicaRoutingDataSource.setPrimaryOnly(true);
+        }
+
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+        Object handler, Exception ex) {
+        ReplicaRoutingDataSource.setPrimaryOnly(false);
+
+        if (!isRead(request)) {
+            recentWriters.put(clientOf(request), Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request,
+        HttpServletResponse response, Object handler) {
+        // afterCompletion only runs after the async dispatch, on whichever thread serves it
+        ReplicaRoutingDataSource.setPrimaryOnly(false);
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        return HttpMethod.GET.matches(request.getMethod())
+            || HttpMethod.HEAD.matches(request.getMethod());
+    }
+
+    private static String clientOf(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal == null ? request.getRemoteAddr() : principal.getName();
+    }
+}
@@ -0,0 +1,115 @@
+package wolox.training.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hands out replica connections to read-only transactions, round-robin over the replicas that
+ * are up, and primary connections to everything else. A replica that fails to give a connection
+ * is skipped until a health check finds it valid again; with no replica up, reads go to the
+ * primary. Must sit behind a {@code LazyConnectionDataSourceProxy}, so the connection is only
+ * chosen once the transaction has been marked read-only.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private static final ThreadLocal<Boolean> primaryOnly = ThreadLocal
+        .withInitial(() -> Boolean.FALSE);
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).collect(Collectors.toList());
+    }
+
+    /**
+     * Sends the reads of the current thread to the primary, e.g. right after the same client
+     * wrote something a replica may not have yet.
+     */
+    public static void setPrimaryOnly(boolean value) {
+        if (value) {
+            primaryOnly.set(Boolean.TRUE);
+        } else {
+            primaryOnly.remove();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replicas.isEmpty() || primaryOnly.get()
+            || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primary.getConnection();
+        }
+
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            Replica replica = replicas.get(index);
+
+            if (replica.up) {
+                try {
+                    return replica.dataSource.getConnection();
+                } catch (SQLException e) {
+                    replica.up = false;
+                    logger.warn("Replica {} is down, reads fall back to other nodes", index, e);
+                }
+            }
+        }
+
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                replica.up = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                replica.up = false;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closeIfPossible(primary);
+        replicas.forEach(replica -> closeIfPossible(replica.dataSource));
+    }
+
+    private static void closeIfPossible(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource) {
+            ((HikariDataSource) dataSource).close();
+        }
+    }
+
+    private static final class Replica {
+
+        private final DataSource dataSource;
+        private volatile boolean up = true;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
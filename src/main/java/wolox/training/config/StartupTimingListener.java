@@ -0,0 +1,59 @@
+package wolox.training.config;
+
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationContextInitializedEvent;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+/**
+ * Logs how long each startup phase takes. It has to be added to the SpringApplication before it
+ * runs, otherwise it misses the first events.
+ */
+public class StartupTimingListener implements ApplicationListener<ApplicationEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupTimingListener.class);
+
+    private long startNanos;
+    private long lastNanos;
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationStartingEvent) {
+            startNanos = System.nanoTime();
+            lastNanos = startNanos;
+        } else if (event instanceof ApplicationEnvironmentPreparedEvent) {
+            logPhase("environment prepared");
+        } else if (event instanceof ApplicationContextInitializedEvent) {
+            logPhase("context initialized");
+        } else if (event instanceof ApplicationPreparedEvent) {
+            logPhase("bean definitions loaded");
+        } else if (event instanceof ContextRefreshedEvent) {
+            logPhase("context refreshed");
+        } else if (event instanceof WebServerInitializedEvent) {
+            logPhase("web server started");
+        } else if (event instanceof ApplicationStartedEvent) {
+            logPhase("runners started");
+        } else if (event instanceof ApplicationReadyEvent) {
+            logPhase("application ready");
+        }
+    }
+
+    private void logPhase(String phase) {
+        long now = System.nanoTime();
+
+        LOGGER.info("Startup phase '{}' took {} ms ({} ms since start)", phase,
+            TimeUnit.NANOSECONDS.toMillis(now - lastNanos),
+            TimeUnit.NANOSECONDS.toMillis(now - startNanos));
+
+        lastNanos = now;
+    }
+}
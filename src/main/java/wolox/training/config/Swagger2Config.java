@@ -2,6 +2,7 @@ package wolox.training.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
@@ -12,15 +13,17 @@ import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 @Configuration
+@Profile("!fast-start | docs")
 @EnableSwagger2
 public class Swagger2Config {
 
     @Bean
     public Docket api() {
         return new Docket(DocumentationType.SWAGGER_2)
+            .apiInfo(apiInfo())
             .select()
-            .apis(RequestHandlerSelectors.any())
-            .paths(PathSelectors.any())
+            .apis(RequestHandlerSelectors.basePackage("wolox.training.controllers"))
+            .paths(PathSelectors.ant("/api/**"))
             .build();
     }
 
@@ -0,0 +1,109 @@
+package wolox.training.config;
+
+import com.google.common.base.Preconditions;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One token bucket per client, each kept as a single {@code long}: the time at which it will be
+ * full again (the generic cell rate algorithm). Taking a token is one compare-and-set on that
+ * time, with no lock, and the map itself only locks per bin. A bucket that is full again means
+ * the same as a missing one, so idle clients can be evicted at any time.
+ */
+public class TokenBuckets {
+
+    private final int burst;
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    private final ConcurrentMap<String, AtomicLong> fullAt = new ConcurrentHashMap<>();
+
+    /**
+     * @param ratePerSecond tokens added per second
+     * @param burst tokens a bucket holds when full
+     */
+    public TokenBuckets(double ratePerSecond, int burst) {
+        Preconditions.checkArgument(ratePerSecond > 0, "Rate must be positive");
+        Preconditions.checkArgument(burst > 0, "Burst must be positive");
+        this.burst = burst;
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        this.burstNanos = intervalNanos * burst;
+    }
+
+    public Result take(String key) {
+        return take(key, System.nanoTime());
+    }
+
+    Result take(String key, long nowNanos) {
+        AtomicLong bucket = fullAt.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+
+        while (true) {
+            long current = bucket.get();
+            long next = Math.max(current, nowNanos) + intervalNanos;
+
+            if (next - nowNanos > burstNanos) {
+                return new Result(false, 0, current - nowNanos, next - nowNanos - burstNanos);
+            }
+
+            if (bucket.compareAndSet(current, next)) {
+                return new Result(true, (int) ((burstNanos - (next - nowNanos)) / intervalNanos),
+                    next - nowNanos, 0);
+            }
+        }
+    }
+
+    /**
+     * Drops the buckets that are full again. A token taken from one while it is dropped is lost,
+     * which only lets that client through once more.
+     */
+    public void evictIdle() {
+        evictIdle(System.nanoTime());
+    }
+
+    void evictIdle(long nowNanos) {
+        fullAt.values().removeIf(bucket -> bucket.get() - nowNanos <= 0);
+    }
+
+    int size() {
+        return fullAt.size();
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public static final class Result {
+
+        private final boolean allowed;
+        private final int remaining;
+        private final long resetNanos;
+        private final long retryAfterNanos;
+
+        private Result(boolean allowed, int remaining, long resetNanos, long retryAfterNanos) {
+            this.allowed = allowed;
+            this.remaining = remaining;
+            this.resetNanos = resetNanos;
+            this.retryAfterNanos = retryAfterNanos;
+        }
+
+        public boolean isAllowed() {
+            return allowed;
+        }
+
+        public int getRemaining() {
+            return remaining;
+        }
+
+        // Until the bucket is full again
+        public long getResetNanos() {
+            return resetNanos;
+        }
+
+        // Until the next token, 0 when allowed
+        public long getRetryAfterNanos() {
+            return retryAfterNanos;
+        }
+    }
+}
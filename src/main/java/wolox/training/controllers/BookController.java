@@ -1,32 +1,64 @@
 package wolox.training.controllers;
 
 import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.ui.Model;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import wolox.training.exceptions.BookIdMismatchException;
 import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.exceptions.MissingFilterException;
 import wolox.training.exceptions.ParseBookException;
 import wolox.training.exceptions.RequestException;
+import wolox.training.exceptions.TooManyIdsException;
 import wolox.training.models.Book;
+import wolox.training.models.BookImport;
 import wolox.training.models.dtos.BookDto;
+import wolox.training.models.dtos.CountedPage;
+import wolox.training.models.dtos.DeletedDto;
+import wolox.training.models.dtos.FacetsDto;
+import wolox.training.models.dtos.MultiGetDto;
+import wolox.training.models.dtos.SuggestionDto;
+import wolox.training.models.dtos.VersionDto;
 import wolox.training.repositories.BookRepository;
+import wolox.training.repositories.MultiGet;
+import wolox.training.repositories.Sorting;
+import wolox.training.services.BookCatalogSnapshot;
+import wolox.training.services.BookFacetIndex;
+import wolox.training.services.BookImportService;
+import wolox.training.services.BookResponseCache;
+import wolox.training.services.BookSuggestIndex;
+import wolox.training.services.ContributorService;
 import wolox.training.services.OpenLibraryService;
+import wolox.training.services.PageCounter;
+import wolox.training.services.PatchService;
 
 @RestController
 @RequestMapping("/api/books")
@@ -38,6 +70,33 @@ public class BookController {
     @Autowired
     private OpenLibraryService openLibraryService;
 
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private BookResponseCache bookResponseCache;
+
+    @Autowired
+    private PatchService patchService;
+
+    @Autowired
+    private ContributorService contributorService;
+
+    @Autowired
+    private BookFacetIndex bookFacetIndex;
+
+    @Autowired
+    private BookSuggestIndex bookSuggestIndex;
+
+    @Autowired
+    private PageCounter pageCounter;
+
+    @Autowired(required = false)
+    private BookCatalogSnapshot bookCatalogSnapshot;
+
+    @Value("${training.books.import.async:false}")
+    private boolean asyncImports;
+
     @GetMapping("/greeting")
     public String greeting(
         @RequestParam(name = "name", required = false, defaultValue = "World") String name,
@@ -49,11 +108,13 @@ public class BookController {
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Book create(@Valid @RequestBody Book book) {
+        contributorService.link(book);
         return bookRepository.save(book);
     }
 
     @GetMapping
-    public Page<Book> findAll(
+    public Page<?> findAll(
+        @RequestParam(name = "fields", required = false) List<String> fields,
         @RequestParam(name = "isbn", required = false) String isbn,
         @RequestParam(name = "author", required = false) String author,
         @RequestParam(name = "genre", required = false) String genre,
@@ -62,18 +123,140 @@ public class BookController {
         @RequestParam(name = "publisher", required = false) String publisher,
         @RequestParam(name = "subtitle", required = false) String subtitle,
         @RequestParam(name = "title", required = false) String title,
-        @RequestParam(name = "year", required = false) String year,
+        @RequestParam(name = "year", required = false) Integer year,
+        @RequestParam(name = "yearFrom", required = false) Integer yearFrom,
+        @RequestParam(name = "yearTo", required = false) Integer yearTo,
+        @RequestParam(name = "pagesMin", required = false) Integer pagesMin,
+        @RequestParam(name = "pagesMax", required = false) Integer pagesMax,
         Pageable pageable
     ) {
-        return bookRepository
-            .findAll(isbn, author, genre, image, pages, publisher, subtitle, title, year, pageable);
+        pageable = Sorting.stable(pageable, BookRepository.SORTABLE_FIELDS);
+
+        if (fields != null) {
+            return bookRepository.findAllFields(fields, isbn, author, genre, image, pages,
+                publisher, subtitle, title, year, yearFrom, yearTo, pagesMin, pagesMax, pageable);
+        }
+
+        if (bookCatalogSnapshot != null) {
+            Optional<Page<Book>> books = bookCatalogSnapshot.findAll(isbn, author, genre, image,
+                pages, publisher, subtitle, title, year, yearFrom, yearTo, pagesMin, pagesMax,
+                pageable);
+
+            if (books.isPresent()) {
+                return CountedPage.exact(books.get());
+            }
+        }
+
+        return pageCounter.find(pageable,
+            Arrays.asList("books", isbn, author, genre, image, pages, publisher, subtitle, title,
+                year, yearFrom, yearTo, pagesMin, pagesMax),
+            page -> bookRepository.findAll(isbn, author, genre, image, pages, publisher, subtitle,
+                title, year, yearFrom, yearTo, pagesMin, pagesMax, page),
+            page -> bookRepository.findSlice(isbn, author, genre, image, pages, publisher,
+                subtitle, title, year, yearFrom, yearTo, pagesMin, pagesMax, page),
+            () -> bookRepository.countAll(isbn, author, genre, image, pages, publisher, subtitle,
+                title, year, yearFrom, yearTo, pagesMin, pagesMax),
+            bookRepository::estimateCount);
+    }
+
+    @GetMapping("/search")
+    public Page<Book> search(
+        @RequestParam(name = "genre", required = false) String genre,
+        @RequestParam(name = "publisher", required = false) String publisher,
+        @RequestParam(name = "year", required = false) Integer year,
+        Pageable pageable
+    ) {
+        return bookRepository.findByGenreAndPublisherAndYear(genre, publisher, year,
+            Sorting.stable(pageable, BookRepository.SORTABLE_FIELDS));
+    }
+
+    // Text filters such as title are left to the search, see BookFacetIndex
+    @GetMapping("/facets")
+    public FacetsDto facets(
+        @RequestParam(name = "author", required = false) String author,
+        @RequestParam(name = "genre", required = false) String genre,
+        @RequestParam(name = "pages", required = false) Integer pages,
+        @RequestParam(name = "publisher", required = false) String publisher,
+        @RequestParam(name = "year", required = false) Integer year,
+        @RequestParam(name = "yearFrom", required = false) Integer yearFrom,
+        @RequestParam(name = "yearTo", required = false) Integer yearTo,
+        @RequestParam(name = "pagesMin", required = false) Integer pagesMin,
+        @RequestParam(name = "pagesMax", required = false) Integer pagesMax,
+        @RequestParam(name = "limit", required = false, defaultValue = "10") int limit
+    ) {
+        return bookFacetIndex.count(author, genre, pages, publisher, year, yearFrom, yearTo,
+            pagesMin, pagesMax, Math.max(1, Math.min(limit, BookFacetIndex.MAX_VALUES)));
+    }
+
+    @GetMapping("/suggest")
+    public List<SuggestionDto> suggest(@RequestParam(name = "prefix") String prefix,
+        @RequestParam(name = "limit", required = false, defaultValue = "10") int limit) {
+        return bookSuggestIndex
+            .suggest(prefix, Math.max(1, Math.min(limit, BookSuggestIndex.MAX_SUGGESTIONS)));
+    }
+
+    @GetMapping(params = "ids")
+    public MultiGetDto<Book> findAllById(@RequestParam(name = "ids") List<Long> ids) {
+        return MultiGet.findAll(ids, bookRepository::findAllByIdIn, Book::getId);
+    }
+
+    @PostMapping("/lookup")
+    public MultiGetDto<Book> lookup(@RequestBody List<Long> ids) {
+        return findAllById(ids);
     }
 
     @GetMapping("/{id}")
-    public Book findOne(@PathVariable(value = "id") Long id) {
-        return bookRepository
+    public ResponseEntity<byte[]> findOne(@PathVariable(value = "id") Long id,
+        @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept)
+        throws IOException, HttpMediaTypeNotAcceptableException {
+        MediaType mediaType = bookResponseCache.negotiate(accept);
+        Optional<byte[]> cachedBody = bookResponseCache.get(id, mediaType);
+
+        if (cachedBody.isPresent()) {
+            return ResponseEntity.ok().contentType(mediaType).body(cachedBody.get());
+        }
+
+        Book book = bookRepository
             .findById(id)
             .orElseThrow(BookNotFoundException::new);
+
+        return ResponseEntity.ok().contentType(mediaType)
+            .body(bookResponseCache.put(book, mediaType));
+    }
+
+    @DeleteMapping
+    public DeletedDto deleteAll(
+        @RequestParam(name = "ids", required = false) List<Long> ids,
+        @RequestParam(name = "isbn", required = false) String isbn,
+        @RequestParam(name = "author", required = false) String author,
+        @RequestParam(name = "genre", required = false) String genre,
+        @RequestParam(name = "image", required = false) String image,
+        @RequestParam(name = "pages", required = false) Integer pages,
+        @RequestParam(name = "publisher", required = false) String publisher,
+        @RequestParam(name = "subtitle", required = false) String subtitle,
+        @RequestParam(name = "title", required = false) String title,
+        @RequestParam(name = "year", required = false) Integer year,
+        @RequestParam(name = "yearFrom", required = false) Integer yearFrom,
+        @RequestParam(name = "yearTo", required = false) Integer yearTo,
+        @RequestParam(name = "pagesMin", required = false) Integer pagesMin,
+        @RequestParam(name = "pagesMax", required = false) Integer pagesMax
+    ) {
+        if (ids != null) {
+            if (ids.size() > MultiGet.MAX_IDS) {
+                throw new TooManyIdsException(
+                    "At most " + MultiGet.MAX_IDS + " ids can be deleted at once");
+            }
+
+            return new DeletedDto(bookRepository.deleteInBulk(ids));
+        }
+
+        if (Arrays.asList(isbn, author, genre, image, pages, publisher, subtitle, title, year,
+            yearFrom, yearTo, pagesMin, pagesMax).stream().allMatch(Objects::isNull)) {
+            throw new MissingFilterException("Ids or at least one filter are required");
+        }
+
+        return new DeletedDto(bookRepository.deleteMatching(isbn, author, genre, image, pages,
+            publisher, subtitle, title, year, yearFrom, yearTo, pagesMin, pagesMax));
     }
 
     @DeleteMapping("/{id}")
@@ -83,6 +266,7 @@ public class BookController {
             .orElseThrow(BookNotFoundException::new);
 
         bookRepository.delete(book);
+        bookResponseCache.evictDeleted(id);
     }
 
     @PutMapping("/{id}")
@@ -91,19 +275,67 @@ public class BookController {
             throw new BookIdMismatchException("Ids mismatch");
         }
 
-        bookRepository.findById(id)
+        Book databaseBook = bookRepository.findById(id)
             .orElseThrow(BookNotFoundException::new);
 
-        return bookRepository.save(book);
+        // Without a version the book would be taken as new instead of being merged
+        if (book.getVersion() == null) {
+            book.setVersion(databaseBook.getVersion());
+        }
+
+        contributorService.link(book);
+        Book updatedBook = bookRepository.save(book);
+        bookResponseCache.evict(updatedBook);
+        return updatedBook;
+    }
+
+    @PatchMapping("/{id}")
+    public VersionDto patch(@PathVariable("id") Long id, @RequestBody Map<String, Object> body) {
+        Long version = patchService.version(body);
+        Map<String, Object> changes = patchService
+            .changes(Book.class, BookRepository.PATCHABLE_FIELDS, body);
+
+        if (bookRepository.patch(id, version, changes) == 0) {
+            if (!bookRepository.existsById(id)) {
+                throw new BookNotFoundException();
+            }
+
+            throw new ObjectOptimisticLockingFailureException(Book.class, id);
+        }
+
+        bookResponseCache.evict(id, version + 1);
+        return new VersionDto(id, version + 1);
     }
 
     @GetMapping("/isbn/{isbn}")
-    public ResponseEntity<Book> findByIsbn(@PathVariable(name = "isbn") String isbn)
-        throws ParseBookException, RequestException {
+    public ResponseEntity<?> findByIsbn(@PathVariable(name = "isbn") String isbn,
+        @RequestHeader(name = "Prefer", required = false) String prefer,
+        @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept)
+        throws ParseBookException, RequestException, IOException,
+        HttpMediaTypeNotAcceptableException {
+        MediaType mediaType = bookResponseCache.negotiate(accept);
+        Optional<byte[]> cachedBody = bookResponseCache.getByIsbn(isbn, mediaType);
+
+        if (cachedBody.isPresent()) {
+            return ResponseEntity.ok().contentType(mediaType).body(cachedBody.get());
+        }
+
         Optional<Book> databaseBook = bookRepository.findByIsbn(isbn);
 
         if (databaseBook.isPresent()) {
-            return new ResponseEntity<>(databaseBook.get(), HttpStatus.OK);
+            return ResponseEntity.ok().contentType(mediaType)
+                .body(bookResponseCache.put(databaseBook.get(), mediaType));
+        }
+
+        if (asyncImports || prefersAsync(prefer)) {
+            BookImport job = bookImportService.submit(isbn);
+            URI location = ServletUriComponentsBuilder
+                .fromCurrentContextPath()
+                .path("/api/books/imports/{id}")
+                .buildAndExpand(job.getId())
+                .toUri();
+
+            return ResponseEntity.accepted().location(location).body(job);
         }
 
         BookDto bookDto;
@@ -129,4 +361,11 @@ public class BookController {
 
         throw new BookNotFoundException();
     }
+
+    private boolean prefersAsync(String prefer) {
+        return prefer != null && Arrays
+            .stream(prefer.split(","))
+            .map(String::trim)
+            .anyMatch("respond-async"::equalsIgnoreCase);
+    }
 }
@@ -0,0 +1,45 @@
+package wolox.training.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import wolox.training.exceptions.BookImportNotFoundException;
+import wolox.training.models.BookImport;
+import wolox.training.services.BookImportService;
+
+@RestController
+@RequestMapping("/api/books/imports")
+public class BookImportController {
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Value("${training.books.import.max-wait-seconds:30}")
+    private long maxWaitSeconds;
+
+    @GetMapping("/{id}")
+    public DeferredResult<BookImport> findOne(@PathVariable(name = "id") Long id,
+        @RequestParam(name = "wait", defaultValue = "0") long waitSeconds) {
+        BookImport job = bookImportService
+            .find(id)
+            .orElseThrow(BookImportNotFoundException::new);
+
+        long timeoutMillis = Math.max(1, Math.min(waitSeconds, maxWaitSeconds) * 1000);
+        DeferredResult<BookImport> result = new DeferredResult<>(timeoutMillis);
+
+        if (waitSeconds <= 0 || job.isFinished()) {
+            result.setResult(job);
+            return result;
+        }
+
+        result.onTimeout(() -> result.setResult(bookImportService.find(id).orElse(job)));
+        bookImportService.completion(job).thenAccept(result::setResult);
+
+        return result;
+    }
+}
@@ -6,13 +6,19 @@ import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import io.swagger.annotations.Authorization;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -23,19 +29,31 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.exceptions.MissingFilterException;
 import wolox.training.exceptions.NewPasswordsNotMatchException;
 import wolox.training.exceptions.NoPasswordsProvidedException;
+import wolox.training.exceptions.TooManyIdsException;
 import wolox.training.exceptions.UserIdMismatchException;
 import wolox.training.exceptions.UserNotAuthenticatedException;
 import wolox.training.exceptions.UserNotFoundException;
 import wolox.training.exceptions.UserPasswordMismatch;
 import wolox.training.models.Book;
 import wolox.training.models.User;
+import wolox.training.models.dtos.DeletedDto;
+import wolox.training.models.dtos.MultiGetDto;
+import wolox.training.models.dtos.UserSearchDto;
+import wolox.training.models.dtos.VersionDto;
 import wolox.training.repositories.BookRepository;
+import wolox.training.repositories.MultiGet;
+import wolox.training.repositories.Sorting;
 import wolox.training.repositories.UserRepository;
+import wolox.training.services.PageCounter;
+import wolox.training.services.PatchService;
+import wolox.training.services.UserLookupService;
 
 @Api(value = "CRUD User")
 @RestController
@@ -48,6 +66,15 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PatchService patchService;
+
+    @Autowired
+    private PageCounter pageCounter;
+
+    @Autowired
+    private UserLookupService userLookupService;
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public User create(@Valid @RequestBody User user) {
@@ -55,8 +82,62 @@ public class UserController {
     }
 
     @GetMapping
-    public Page<User> findAll(Pageable pageable) {
-        return userRepository.findAll(pageable);
+    public Page<?> findAll(
+        @RequestParam(name = "fields", required = false) List<String> fields,
+        Pageable pageable) {
+        pageable = Sorting.stable(pageable, UserRepository.SORTABLE_FIELDS);
+
+        if (fields != null) {
+            return userRepository.findAllFields(fields, pageable);
+        }
+
+        return pageCounter.find(pageable, Collections.singletonList("users"),
+            userRepository::findAllWithBooks, userRepository::findSliceWithBooks,
+            userRepository::count,
+            userRepository::estimateCount);
+    }
+
+    @GetMapping(params = "ids")
+    public MultiGetDto<User> findAllById(@RequestParam(name = "ids") List<Long> ids) {
+        return MultiGet.findAll(ids, userRepository::findAllByIdIn, User::getId);
+    }
+
+    @PostMapping("/lookup")
+    public MultiGetDto<User> lookup(@RequestBody List<Long> ids) {
+        return findAllById(ids);
+    }
+
+    @GetMapping("/search")
+    public UserSearchDto search(
+        @RequestParam(name = "startDate", required = false)
+        @DateTimeFormat(iso = ISO.DATE) LocalDate startDate,
+        @RequestParam(name = "endDate", required = false)
+        @DateTimeFormat(iso = ISO.DATE) LocalDate endDate,
+        @RequestParam(name = "name", required = false) String name,
+        @RequestParam(name = "afterBirthDate", required = false)
+        @DateTimeFormat(iso = ISO.DATE) LocalDate afterBirthDate,
+        @RequestParam(name = "afterId", required = false) Long afterId,
+        @RequestParam(name = "size", required = false, defaultValue = "20") int size) {
+        if ((afterBirthDate == null) != (afterId == null)) {
+            throw new MissingFilterException("afterBirthDate and afterId go together");
+        }
+
+        int limit = Math.max(1, Math.min(size, UserRepository.MAX_SEARCH_SIZE));
+        // One extra user tells whether there is a next page
+        List<User> users = userRepository
+            .search(startDate, endDate, name, afterBirthDate, afterId, limit + 1);
+        User last = null;
+
+        if (users.size() > limit) {
+            users = users.subList(0, limit);
+            last = users.get(limit - 1);
+        }
+
+        Map<String, Long> ages = afterId == null
+            ? userRepository.countByAge(startDate, endDate, name, LocalDate.now()) : null;
+
+        return new UserSearchDto(users, last == null ? null : last.getBirthDate(),
+            last == null ? null : last.getId(), ages);
     }
 
     @ApiOperation(value = "Find an user by id", response = User.class, authorizations = {
@@ -70,10 +151,20 @@ public class UserController {
     public User findOne(
         @ApiParam(required = true, value = "User's id") @PathVariable(name = "id") Long id) {
         return userRepository
-            .findById(id)
+            .findWithBooksById(id)
             .orElseThrow(UserNotFoundException::new);
     }
 
+    @DeleteMapping(params = "ids")
+    public DeletedDto deleteAll(@RequestParam(name = "ids") List<Long> ids) {
+        if (ids.size() > MultiGet.MAX_IDS) {
+            throw new TooManyIdsException(
+                "At most " + MultiGet.MAX_IDS + " ids can be deleted at once");
+        }
+
+        return new DeletedDto(userRepository.deleteInBulk(ids));
+    }
+
     @DeleteMapping("/{id}")
     public void delete(@PathVariable(value = "id") Long id) {
         User user = userRepository
@@ -89,20 +180,40 @@ public class UserController {
             throw new UserIdMismatchException();
         }
 
-        userRepository.findById(id)
+        User existingUser = userRepository.findById(id)
             .orElseThrow(UserNotFoundException::new);
 
         User newUser = new User(user.getId(), user.getUsername(), user.getName(),
             user.getBirthDate());
+        // Without a version the user would be taken as new instead of being merged
+        newUser.setVersion(user.getVersion() == null ? existingUser.getVersion()
+            : user.getVersion());
 
         return userRepository.save(newUser);
     }
 
+    @PatchMapping("/{id}")
+    public VersionDto patch(@PathVariable("id") Long id, @RequestBody Map<String, Object> body) {
+        Long version = patchService.version(body);
+        Map<String, Object> changes = patchService
+            .changes(User.class, UserRepository.PATCHABLE_FIELDS, body);
+
+        if (userRepository.patch(id, version, changes) == 0) {
+            if (!userRepository.existsById(id)) {
+                throw new UserNotFoundException();
+            }
+
+            throw new ObjectOptimisticLockingFailureException(User.class, id);
+        }
+
+        return new VersionDto(id, version + 1);
+    }
+
     @PutMapping("/{userId}/books/{bookId}")
     public User addBook(@PathVariable(name = "userId") Long userId,
         @PathVariable(name = "bookId") Long bookId) {
         User user = userRepository
-            .findById(userId)
+            .findWithBooksById(userId)
             .orElseThrow(UserNotFoundException::new);
 
         Book book = bookRepository
@@ -118,7 +229,7 @@ public class UserController {
     public User removeBook(@PathVariable(name = "userId") Long userId,
         @PathVariable(name = "bookId") Long bookId) {
         User user = userRepository
-            .findById(userId)
+            .findWithBooksById(userId)
             .orElseThrow(UserNotFoundException::new);
 
         Book book = bookRepository
@@ -149,7 +260,7 @@ public class UserController {
         }
 
         User user = userRepository
-            .findById(userId)
+            .findWithBooksById(userId)
             .orElseThrow(UserNotFoundException::new);
 
         if (!BCrypt.checkpw(oldPassword, user.getPassword())) {
@@ -165,8 +276,8 @@ public class UserController {
     public User selfUser(Authentication authentication) {
         if (authentication.isAuthenticated()) {
             String username = authentication.getName();
-            return userRepository
-                .findFirstByUsername(username)
+            return userLookupService
+                .findWithBooksByUsername(username)
                 .orElseThrow(UserNotFoundException::new);
         }
 
@@ -0,0 +1,78 @@
+package wolox.training.events;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Published whenever entities change, so caches and indexes built on top of them can be
+ * invalidated once the transaction commits. Events coming from other nodes carry their origin.
+ */
+public class EntityChangeEvent {
+
+    public enum Kind {
+        UPDATED, DELETED, RESET
+    }
+
+    private final Class<?> type;
+    private final Kind kind;
+    private final List<Long> ids;
+    private final Long version;
+    private final String origin;
+
+    public EntityChangeEvent(Class<?> type, Kind kind, Collection<Long> ids, Long version,
+        String origin) {
+        this.type = type;
+        this.kind = kind;
+        this.ids = Collections.unmodifiableList(new ArrayList<>(ids));
+        this.version = version;
+        this.origin = origin;
+    }
+
+    public static EntityChangeEvent updated(Class<?> type, Long id, Long version) {
+        return new EntityChangeEvent(type, Kind.UPDATED, Collections.singletonList(id), version,
+            null);
+    }
+
+    public static EntityChangeEvent deleted(Class<?> type, Collection<Long> ids) {
+        return new EntityChangeEvent(type, Kind.DELETED, ids, null, null);
+    }
+
+    /**
+     * Anything of {@code type} may be stale, e.g. after missing notifications from other nodes.
+     */
+    public static EntityChangeEvent reset(Class<?> type, String origin) {
+        return new EntityChangeEvent(type, Kind.RESET, Collections.emptyList(), null, origin);
+    }
+
+    public EntityChangeEvent withOrigin(String origin) {
+        return new EntityChangeEvent(type, kind, ids, version, origin);
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    /**
+     * New version of an updated entity, {@code null} for other kinds.
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Node that made the change, {@code null} when it was made by this one.
+     */
+    public String getOrigin() {
+        return origin;
+    }
+}
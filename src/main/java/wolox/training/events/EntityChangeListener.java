@@ -0,0 +1,46 @@
+package wolox.training.events;
+
+import java.util.Collections;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import wolox.training.models.Book;
+import wolox.training.models.User;
+
+/**
+ * Turns Hibernate inserts, updates and removals of books and users into {@link EntityChangeEvent}s.
+ * Hibernate gets the instance from the Spring bean container, so it can be autowired.
+ */
+public class EntityChangeListener {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // New entities are reported as updated, nothing can be cached for them yet
+    @PostPersist
+    @PostUpdate
+    public void onUpdate(Object entity) {
+        if (entity instanceof Book) {
+            Book book = (Book) entity;
+            eventPublisher.publishEvent(
+                EntityChangeEvent.updated(Book.class, book.getId(), book.getVersion()));
+        } else if (entity instanceof User) {
+            User user = (User) entity;
+            eventPublisher.publishEvent(
+                EntityChangeEvent.updated(User.class, user.getId(), user.getVersion()));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        if (entity instanceof Book) {
+            eventPublisher.publishEvent(EntityChangeEvent
+                .deleted(Book.class, Collections.singletonList(((Book) entity).getId())));
+        } else if (entity instanceof User) {
+            eventPublisher.publishEvent(EntityChangeEvent
+                .deleted(User.class, Collections.singletonList(((User) entity).getId())));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package wolox.training.events;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries committed {@link EntityChangeEvent}s between the nodes running this application.
+ */
+public interface InvalidationBus {
+
+    /**
+     * Sends the event to every node, including this one. Must not block the caller.
+     */
+    void publish(EntityChangeEvent event);
+
+    void subscribe(Consumer<EntityChangeEvent> subscriber);
+
+    void unsubscribe(Consumer<EntityChangeEvent> subscriber);
+}
@@ -0,0 +1,55 @@
+package wolox.training.events;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Forwards the entity changes committed on this node to the {@link InvalidationBus}, and
+ * republishes the ones received from other nodes as local {@link EntityChangeEvent}s, so the same
+ * listeners keep every node's caches coherent.
+ */
+@Component
+public class InvalidationRelay {
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Consumer<EntityChangeEvent> subscriber = this::receive;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribe() {
+        invalidationBus.subscribe(subscriber);
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        invalidationBus.unsubscribe(subscriber);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEntityChange(EntityChangeEvent event) {
+        // Events with an origin came from the bus, sending them again would loop
+        if (event.getOrigin() == null) {
+            invalidationBus.publish(event.withOrigin(nodeId));
+        }
+    }
+
+    private void receive(EntityChangeEvent event) {
+        if (!nodeId.equals(event.getOrigin())) {
+            eventPublisher.publishEvent(event);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package wolox.training.events;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-JVM stand-in for the PostgreSQL bus, for a single node and tests. Events only reach the
+ * subscribers of the same instance, so each application context is a node of its own. Tests
+ * simulate several nodes by sharing one instance between their relays.
+ */
+@Component
+@ConditionalOnProperty(name = "training.invalidation.bus", havingValue = "local",
+    matchIfMissing = true)
+public class LocalInvalidationBus implements InvalidationBus {
+
+    private final List<Consumer<EntityChangeEvent>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(EntityChangeEvent event) {
+        subscribers.forEach(subscriber -> subscriber.accept(event));
+    }
+
+    @Override
+    public void subscribe(Consumer<EntityChangeEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public void unsubscribe(Consumer<EntityChangeEvent> subscriber) {
+        subscribers.remove(subscriber);
+    }
+}
@@ -0,0 +1,231 @@
+package wolox.training.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import wolox.training.events.EntityChangeEvent.Kind;
+import wolox.training.models.Book;
+import wolox.training.models.User;
+
+/**
+ * Sends events with {@code NOTIFY} and receives them on a dedicated connection that runs
+ * {@code LISTEN}, so every node sharing the database learns about the others' commits.
+ * Notifications sent while the listening connection is down are lost, so after reconnecting
+ * subscribers get a {@link Kind#RESET} for every entity type.
+ */
+@Component
+@ConditionalOnProperty(name = "training.invalidation.bus", havingValue = "postgres")
+public class PostgresInvalidationBus implements InvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresInvalidationBus.class);
+
+    private static final Map<String, Class<?>> TYPES = ImmutableMap
+        .of(Book.class.getSimpleName(), Book.class, User.class.getSimpleName(), User.class);
+
+    // Payloads must stay under the 8000 bytes accepted by NOTIFY
+    private static final int IDS_PER_NOTIFICATION = 300;
+
+    private static final String BUS_ORIGIN = "invalidation-bus";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${training.invalidation.channel:entity_changes}")
+    private String channel;
+
+    @Value("${training.invalidation.poll-millis:500}")
+    private int pollMillis;
+
+    @Value("${training.invalidation.reconnect-millis:5000}")
+    private long reconnectMillis;
+
+    private final List<Consumer<EntityChangeEvent>> subscribers = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("invalidation-sender").setDaemon(true).build());
+
+    private volatile boolean running;
+
+    private Thread listener;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // The channel can't be a bind parameter in LISTEN
+        Preconditions.checkState(channel.matches("[a-z_][a-z0-9_]*"),
+            "Invalid invalidation channel name %s", channel);
+
+        running = true;
+        listener = new ThreadFactoryBuilder().setNameFormat("invalidation-listener")
+            .setDaemon(true).build().newThread(this::listen);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        sender.shutdown();
+        sender.awaitTermination(1, TimeUnit.SECONDS);
+
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    @Override
+    public void publish(EntityChangeEvent event) {
+        List<List<Long>> chunks = event.getIds().isEmpty()
+            ? Collections.singletonList(Collections.emptyList())
+            : Lists.partition(event.getIds(), IDS_PER_NOTIFICATION);
+
+        for (List<Long> chunk : chunks) {
+            String payload = encode(event, chunk);
+            // Never run on the committing thread, its connection may still be bound to it
+            sender.execute(() -> send(payload));
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<EntityChangeEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public void unsubscribe(Consumer<EntityChangeEvent> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    private void send(String payload) {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, channel);
+            statement.setString(2, payload);
+            statement.execute();
+        } catch (SQLException e) {
+            logger.warn("Couldn't notify entity change {}", payload, e);
+        }
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+
+                if (reconnecting) {
+                    TYPES.values()
+                        .forEach(type -> deliver(EntityChangeEvent.reset(type, BUS_ORIGIN)));
+                }
+
+                reconnecting = true;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollMillis);
+
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            decodeAndDeliver(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    logger.warn("Lost the invalidation channel, reconnecting", e);
+                    sleepBeforeReconnecting();
+                }
+            }
+        }
+    }
+
+    private void sleepBeforeReconnecting() {
+        try {
+            Thread.sleep(reconnectMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private void deliver(EntityChangeEvent event) {
+        for (Consumer<EntityChangeEvent> subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                logger.warn("Entity change subscriber failed", e);
+            }
+        }
+    }
+
+    private String encode(EntityChangeEvent event, List<Long> ids) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("origin", event.getOrigin());
+        payload.put("type", event.getType().getSimpleName());
+        payload.put("kind", event.getKind().name());
+        payload.put("ids", ids);
+        payload.put("version", event.getVersion());
+
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't encode entity change", e);
+        }
+    }
+
+    private void decodeAndDeliver(String payload) {
+        try {
+            Map<?, ?> fields = objectMapper.readValue(payload, Map.class);
+            Class<?> type = TYPES.get(String.valueOf(fields.get("type")));
+
+            if (type == null) {
+                logger.warn("Ignoring entity change of unknown type {}", payload);
+                return;
+            }
+
+            List<Long> ids = ((List<?>) fields.get("ids")).stream()
+                .map(id -> ((Number) id).longValue())
+                .collect(Collectors.toList());
+            Number version = (Number) fields.get("version");
+
+            deliver(new EntityChangeEvent(type, Kind.valueOf(String.valueOf(fields.get("kind"))),
+                ids, version == null ? null : version.longValue(),
+                String.valueOf(fields.get("origin"))));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring malformed entity change {}", payload, e);
+        }
+    }
+}
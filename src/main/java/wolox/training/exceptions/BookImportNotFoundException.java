@@ -0,0 +1,5 @@
+package wolox.training.exceptions;
+
+public class BookImportNotFoundException extends RuntimeException {
+
+}
@@ -4,4 +4,6 @@ public class ErrorConstants {
 
     public static final String ENTITY_NOT_FOUND = "Entity not found";
 
+    public static final String STALE_VERSION = "Entity was modified by another request";
+
 }
@@ -0,0 +1,8 @@
+package wolox.training.exceptions;
+
+public class InvalidFieldsException extends RuntimeException {
+
+    public InvalidFieldsException(String message) {
+        super(message);
+    }
+}
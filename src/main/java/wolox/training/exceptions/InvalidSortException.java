@@ -0,0 +1,8 @@
+package wolox.training.exceptions;
+
+public class InvalidSortException extends RuntimeException {
+
+    public InvalidSortException(String message) {
+        super(message);
+    }
+}
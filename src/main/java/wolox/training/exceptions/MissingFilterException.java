@@ -0,0 +1,8 @@
+package wolox.training.exceptions;
+
+public class MissingFilterException extends RuntimeException {
+
+    public MissingFilterException(String message) {
+        super(message);
+    }
+}
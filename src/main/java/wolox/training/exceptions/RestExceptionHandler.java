@@ -7,6 +7,7 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -16,7 +17,8 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 @ControllerAdvice
 public class RestExceptionHandler extends ResponseEntityExceptionHandler {
 
-    @ExceptionHandler({BookNotFoundException.class, UserNotFoundException.class})
+    @ExceptionHandler({BookNotFoundException.class, UserNotFoundException.class,
+        BookImportNotFoundException.class})
     protected ResponseEntity<Object> handleNotFound(Exception ex, WebRequest request) {
         return handleExceptionInternal(ex, ErrorConstants.ENTITY_NOT_FOUND, new HttpHeaders(),
             HttpStatus.NOT_FOUND,
@@ -24,12 +26,19 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
     }
 
     @ExceptionHandler({BookIdMismatchException.class, ConstraintViolationException.class,
-        DataIntegrityViolationException.class})
+        DataIntegrityViolationException.class, InvalidFieldsException.class,
+        TooManyIdsException.class, MissingFilterException.class, InvalidSortException.class})
     protected ResponseEntity<Object> handleIdMismatch(Exception ex, WebRequest request) {
         return handleExceptionInternal(ex, ex.getLocalizedMessage(), new HttpHeaders(),
             HttpStatus.BAD_REQUEST, request);
     }
 
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    protected ResponseEntity<Object> handleStaleVersion(Exception ex, WebRequest request) {
+        return handleExceptionInternal(ex, ErrorConstants.STALE_VERSION, new HttpHeaders(),
+            HttpStatus.CONFLICT, request);
+    }
+
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(
         MethodArgumentNotValidException ex, HttpHeaders headers, HttpStatus status,
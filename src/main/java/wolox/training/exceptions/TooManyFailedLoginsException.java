@@ -0,0 +1,10 @@
+package wolox.training.exceptions;
+
+import org.springframework.security.core.AuthenticationException;
+
+public class TooManyFailedLoginsException extends AuthenticationException {
+
+    public TooManyFailedLoginsException(String message) {
+        super(message);
+    }
+}
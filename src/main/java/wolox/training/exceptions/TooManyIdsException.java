@@ -0,0 +1,8 @@
+package wolox.training.exceptions;
+
+public class TooManyIdsException extends RuntimeException {
+
+    public TooManyIdsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package wolox.training.models;
+
+import javax.persistence.Entity;
+
+@Entity
+public class Author extends Contributor {
+
+    public Author() {
+        // Added to use with JPA;
+    }
+
+    public Author(String name) {
+        super(name);
+    }
+}
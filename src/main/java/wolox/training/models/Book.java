@@ -4,23 +4,40 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.Preconditions;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import javax.annotation.Nullable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
+import org.hibernate.annotations.ColumnDefault;
+import wolox.training.events.EntityChangeListener;
 import wolox.training.models.dtos.BookDto;
 
 @Entity
+@Table(indexes = {
+    @Index(name = "book_isbn_id_idx", columnList = "isbn, id"),
+    @Index(name = "book_title_id_idx", columnList = "title, id"),
+    @Index(name = "book_year_id_idx", columnList = "year, id"),
+    @Index(name = "book_pages_id_idx", columnList = "pages, id")
+})
+@EntityListeners(EntityChangeListener.class)
 public class Book {
 
     @Id
@@ -59,14 +76,41 @@ public class Book {
     @NotEmpty(message = "Title is required")
     private String title;
 
+    // Stored as a number so range filters can scan the index, exposed as text in the API
     @Column(nullable = false)
-    @NotEmpty
-    private String year;
+    @NotNull
+    @Min(1)
+    private Integer year;
+
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long version;
 
     @ManyToMany(mappedBy = "books", fetch = FetchType.LAZY)
     @JsonIgnore
     private List<User> users = new ArrayList<>();
 
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(
+        name = "book_author",
+        joinColumns = @JoinColumn(name = "book_id"),
+        inverseJoinColumns = @JoinColumn(name = "author_id"),
+        indexes = @Index(name = "book_author_author_id_idx", columnList = "author_id")
+    )
+    @JsonIgnore
+    private Set<Author> authors = new LinkedHashSet<>();
+
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(
+        name = "book_publisher",
+        joinColumns = @JoinColumn(name = "book_id"),
+        inverseJoinColumns = @JoinColumn(name = "publisher_id"),
+        indexes = @Index(name = "book_publisher_publisher_id_idx", columnList = "publisher_id")
+    )
+    @JsonIgnore
+    private Set<Publisher> publishers = new LinkedHashSet<>();
+
     public Book() {
         // Added to use with JPA;
     }
@@ -83,7 +127,7 @@ public class Book {
         this.publisher = publisher;
         this.subtitle = subtitle;
         this.title = title;
-        this.year = year;
+        this.year = year == null ? null : Integer.valueOf(year);
     }
 
     public static Book fromDto(BookDto bookDto) {
@@ -177,14 +221,22 @@ public class Book {
     }
 
     public String getYear() {
-        return year;
+        return year == null ? null : String.valueOf(year);
     }
 
     public void setYear(String year) {
         Preconditions
             .checkArgument(year != null && year.length() == 4 && Integer.parseInt(year) > 0,
                 "Type a valid year, i.e 1992");
-        this.year = year;
+        this.year = Integer.valueOf(year);
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
     }
 
     public List<User> getUsers() {
@@ -196,6 +248,24 @@ public class Book {
         this.users = users;
     }
 
+    public Set<Author> getAuthors() {
+        return Collections.unmodifiableSet(authors);
+    }
+
+    public void setAuthors(Set<Author> authors) {
+        Preconditions.checkNotNull(authors, "Authors must not be null");
+        this.authors = authors;
+    }
+
+    public Set<Publisher> getPublishers() {
+        return Collections.unmodifiableSet(publishers);
+    }
+
+    public void setPublishers(Set<Publisher> publishers) {
+        Preconditions.checkNotNull(publishers, "Publishers must not be null");
+        this.publishers = publishers;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return (obj instanceof Book) && this.getId() != null && this.getId()
@@ -0,0 +1,135 @@
+package wolox.training.models;
+
+import com.google.common.base.Preconditions;
+import java.time.Duration;
+import java.time.Instant;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Version;
+import javax.validation.constraints.NotNull;
+
+@Entity
+@Table(name = "book_import")
+public class BookImport {
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, NOT_FOUND, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String isbn;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Column
+    private Long bookId;
+
+    @Column
+    private String error;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    // Running jobs past this time are assumed lost with their instance and get restarted
+    @Column
+    private Instant claimedUntil;
+
+    @Version
+    private Long version;
+
+    public BookImport() {
+        // Added to use with JPA;
+    }
+
+    public BookImport(@NotNull String isbn) {
+        Preconditions.checkNotNull(isbn, "Isbn can't be null");
+        this.isbn = isbn;
+        this.status = Status.PENDING;
+        this.createdAt = Instant.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public Instant getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    public boolean isFinished() {
+        return status != Status.PENDING && status != Status.RUNNING;
+    }
+
+    public void restart() {
+        changeStatus(Status.PENDING);
+        this.claimedUntil = null;
+        this.bookId = null;
+        this.error = null;
+    }
+
+    public void start(@NotNull Duration lease) {
+        Preconditions.checkState(status == Status.PENDING, "Only pending imports can be started");
+        changeStatus(Status.RUNNING);
+        this.claimedUntil = updatedAt.plus(lease);
+    }
+
+    public void complete(@NotNull Long bookId) {
+        Preconditions.checkNotNull(bookId, "Book id can't be null");
+        this.bookId = bookId;
+        changeStatus(Status.COMPLETED);
+    }
+
+    public void notFound() {
+        changeStatus(Status.NOT_FOUND);
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        changeStatus(Status.FAILED);
+    }
+
+    private void changeStatus(Status status) {
+        this.status = status;
+        this.updatedAt = Instant.now();
+    }
+}
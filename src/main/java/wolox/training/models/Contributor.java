@@ -0,0 +1,83 @@
+package wolox.training.models;
+
+import com.google.common.base.Preconditions;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.MappedSuperclass;
+
+/**
+ * A named party of a book, stored once per normalized name so books can be looked up through an
+ * index on that name.
+ */
+@MappedSuperclass
+public abstract class Contributor {
+
+    // Books coming from Open Library join several names with this separator
+    public static final String SEPARATOR = " - ";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false, unique = true)
+    private String normalizedName;
+
+    protected Contributor() {
+        // Added to use with JPA;
+    }
+
+    protected Contributor(String name) {
+        Preconditions.checkArgument(name != null && !name.trim().isEmpty(),
+            "Name can't be empty");
+        this.name = name.trim();
+        this.normalizedName = Names.normalize(name);
+    }
+
+    /**
+     * Splits a joined list of names, keyed by normalized name in their original order.
+     */
+    public static Map<String, String> split(String names) {
+        if (names == null) {
+            return new LinkedHashMap<>();
+        }
+
+        Map<String, String> namesByNormalizedName = new LinkedHashMap<>();
+        Arrays.stream(names.split(SEPARATOR))
+            .map(String::trim)
+            .filter(part -> !part.isEmpty())
+            .forEach(part -> namesByNormalizedName.putIfAbsent(Names.normalize(part), part));
+        return namesByNormalizedName;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getNormalizedName() {
+        return normalizedName;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj != null && obj.getClass() == getClass() && id != null
+            && id.equals(((Contributor) obj).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(normalizedName);
+    }
+}
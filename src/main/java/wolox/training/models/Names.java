@@ -0,0 +1,21 @@
+package wolox.training.models;
+
+import java.util.Locale;
+
+/**
+ * Normalization of the names looked up ignoring case and surrounding spaces: contributor names
+ * and usernames.
+ */
+public final class Names {
+
+    private Names() {
+    }
+
+    /**
+     * Must match the normalization of the V5 and V9 migrations and the {@code LOWER(TRIM(...))}
+     * of the queries: trimmed and lower-cased.
+     */
+    public static String normalize(String name) {
+        return name == null ? null : name.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,15 @@
+package wolox.training.models;
+
+import javax.persistence.Entity;
+
+@Entity
+public class Publisher extends Contributor {
+
+    public Publisher() {
+        // Added to use with JPA;
+    }
+
+    public Publisher(String name) {
+        super(name);
+    }
+}
@@ -19,22 +19,37 @@ import javax.annotation.Nullable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Past;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import wolox.training.authentication.BCryptWorkFactor;
+import wolox.training.events.EntityChangeListener;
 import wolox.training.exceptions.BookAlreadyOwned;
 import wolox.training.exceptions.BookNotFoundException;
 
 @ApiModel(description = "User model")
 @Entity(name = "users")
+@Table(indexes = {
+    @Index(name = "users_username_id_idx", columnList = "username, id"),
+    @Index(name = "users_name_id_idx", columnList = "name, id"),
+    @Index(name = "users_birth_date_id_idx", columnList = "birthDate, id"),
+    @Index(name = "users_normalized_username_idx", columnList = "normalizedUsername",
+        unique = true)
+})
+@EntityListeners(EntityChangeListener.class)
 public class User {
 
     @Id
@@ -46,6 +61,12 @@ public class User {
     @NotEmpty(message = "Username is required")
     private String username;
 
+    // Usernames are unique and looked up ignoring case and surrounding spaces. The V9 migration
+    // fills it in for users created before the column existed.
+    @JsonIgnore
+    @Column(nullable = false)
+    private String normalizedUsername;
+
     @ApiModelProperty(value = "Full name of the user", dataType = "String", example = "Juan Esteban Ximenez")
     @Column(nullable = false)
     @NotEmpty(message = "Name is required")
@@ -71,6 +92,11 @@ public class User {
     @Column(nullable = false)
     private String password;
 
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long version;
+
     public User() {
         // Added to use with JPA;
     }
@@ -79,6 +105,7 @@ public class User {
         @NotNull @Past LocalDate birthDate) {
         this.id = id;
         this.username = username;
+        this.normalizedUsername = Names.normalize(username);
         this.name = name;
         this.birthDate = birthDate;
     }
@@ -94,6 +121,11 @@ public class User {
     public void setUsername(String username) {
         Preconditions.checkNotNull(username, "Username can't be null");
         this.username = username;
+        this.normalizedUsername = Names.normalize(username);
+    }
+
+    public String getNormalizedUsername() {
+        return normalizedUsername;
     }
 
     public String getName() {
@@ -153,7 +185,15 @@ public class User {
         this.password = passwordEncoder().encode(password);
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(BCryptWorkFactor.current());
     }
 }
@@ -0,0 +1,32 @@
+package wolox.training.models.dtos;
+
+import java.util.List;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Page telling clients whether {@code totalElements} and {@code totalPages} are exact or come
+ * from a cached or estimated count.
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+    public static final String EXACT = "exact";
+    public static final String APPROXIMATE = "approximate";
+
+    private final String countType;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, String countType) {
+        super(content, pageable, total);
+        this.countType = countType;
+    }
+
+    public static <T> CountedPage<T> exact(Page<T> page) {
+        return new CountedPage<>(page.getContent(), page.getPageable(), page.getTotalElements(),
+            EXACT);
+    }
+
+    public String getCountType() {
+        return countType;
+    }
+}
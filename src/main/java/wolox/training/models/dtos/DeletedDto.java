@@ -0,0 +1,17 @@
+package wolox.training.models.dtos;
+
+public class DeletedDto {
+
+    private long deleted;
+
+    public DeletedDto() {
+    }
+
+    public DeletedDto(long deleted) {
+        this.deleted = deleted;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+}
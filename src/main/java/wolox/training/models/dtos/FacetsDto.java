@@ -0,0 +1,25 @@
+package wolox.training.models.dtos;
+
+import java.util.Map;
+
+public class FacetsDto {
+
+    private long total;
+    private Map<String, Map<String, Integer>> facets;
+
+    public FacetsDto() {
+    }
+
+    public FacetsDto(long total, Map<String, Map<String, Integer>> facets) {
+        this.total = total;
+        this.facets = facets;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public Map<String, Map<String, Integer>> getFacets() {
+        return facets;
+    }
+}
@@ -0,0 +1,25 @@
+package wolox.training.models.dtos;
+
+import java.util.List;
+
+public class MultiGetDto<T> {
+
+    private List<T> items;
+    private List<Long> missing;
+
+    public MultiGetDto() {
+    }
+
+    public MultiGetDto(List<T> items, List<Long> missing) {
+        this.items = items;
+        this.missing = missing;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public List<Long> getMissing() {
+        return missing;
+    }
+}
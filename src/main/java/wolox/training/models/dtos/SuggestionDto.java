@@ -0,0 +1,29 @@
+package wolox.training.models.dtos;
+
+public class SuggestionDto {
+
+    private String text;
+    private String type;
+    private int books;
+
+    public SuggestionDto() {
+    }
+
+    public SuggestionDto(String text, String type, int books) {
+        this.text = text;
+        this.type = type;
+        this.books = books;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getBooks() {
+        return books;
+    }
+}
@@ -0,0 +1,51 @@
+package wolox.training.models.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonFormat.Shape;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import wolox.training.models.User;
+
+public class UserSearchDto {
+
+    private List<User> users;
+
+    // Cursor of the next page, null on the last one
+    @JsonSerialize(using = LocalDateSerializer.class)
+    @JsonFormat(pattern = "yyyy-MM-dd", shape = Shape.STRING)
+    private LocalDate nextBirthDate;
+    private Long nextId;
+
+    // Only sent with the first page
+    private Map<String, Long> ages;
+
+    public UserSearchDto() {
+    }
+
+    public UserSearchDto(List<User> users, LocalDate nextBirthDate, Long nextId,
+        Map<String, Long> ages) {
+        this.users = users;
+        this.nextBirthDate = nextBirthDate;
+        this.nextId = nextId;
+        this.ages = ages;
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public LocalDate getNextBirthDate() {
+        return nextBirthDate;
+    }
+
+    public Long getNextId() {
+        return nextId;
+    }
+
+    public Map<String, Long> getAges() {
+        return ages;
+    }
+}
@@ -0,0 +1,23 @@
+package wolox.training.models.dtos;
+
+public class VersionDto {
+
+    private Long id;
+    private Long version;
+
+    public VersionDto() {
+    }
+
+    public VersionDto(Long id, Long version) {
+        this.id = id;
+        this.version = version;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,11 @@
+package wolox.training.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.repository.CrudRepository;
+import wolox.training.models.Author;
+
+public interface AuthorRepository extends CrudRepository<Author, Long> {
+
+    List<Author> findByNormalizedNameIn(Collection<String> normalizedNames);
+}
@@ -0,0 +1,26 @@
+package wolox.training.repositories;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import wolox.training.models.BookImport;
+import wolox.training.models.BookImport.Status;
+
+@Repository
+public interface BookImportRepository extends CrudRepository<BookImport, Long> {
+
+    Optional<BookImport> findByIsbn(String isbn);
+
+    List<BookImport> findByStatusInOrderByIdAsc(Collection<Status> statuses);
+
+    // Jobs claimed before leases existed have no claimedUntil and count as expired
+    @Query("SELECT i FROM BookImport i WHERE i.status = :status"
+        + " AND (i.claimedUntil IS NULL OR i.claimedUntil < :now) ORDER BY i.id")
+    List<BookImport> findByStatusAndClaimExpired(@Param("status") Status status,
+        @Param("now") Instant now);
+}
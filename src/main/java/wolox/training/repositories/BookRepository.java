@@ -1,5 +1,7 @@
 package wolox.training.repositories;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -10,35 +12,26 @@ import org.springframework.stereotype.Repository;
 import wolox.training.models.Book;
 
 @Repository
-public interface BookRepository extends CrudRepository<Book, Long> {
+public interface BookRepository extends CrudRepository<Book, Long>, BookRepositoryCustom {
+
+    // Null parameters of native queries are bound as bytea, which Postgres casts to VARCHAR only
+    String GENRE_PUBLISHER_YEAR_FILTER =
+        "(:genre IS NULL OR genre = CAST(:genre AS VARCHAR)) AND "
+            + "(:publisher IS NULL OR EXISTS (SELECT 1 FROM book_publisher bp "
+            + "JOIN publisher p ON p.id = bp.publisher_id WHERE bp.book_id = book.id "
+            + "AND p.normalized_name = LOWER(TRIM(CAST(:publisher AS VARCHAR))))) AND "
+            + "(:year IS NULL OR year = CAST(CAST(:year AS VARCHAR) AS INTEGER))";
 
     Optional<Book> findFirstByAuthor(String author);
 
-    @Query(
-        value = "SELECT b FROM Book b WHERE "
-            + "(:isbn IS NULL OR b.isbn = :isbn) AND "
-            + "(:author IS NULL OR b.author = :author) AND "
-            + "(:genre IS NULL OR b.genre = :genre) AND "
-            + "(:image IS NULL OR b.image = :image) AND "
-            + "(:pages IS NULL OR pages = :pages) AND "
-            + "(:publisher IS NULL OR b.publisher = :publisher) AND "
-            + "(:subtitle IS NULL OR b.subtitle LIKE %:subtitle%) AND "
-            + "(:title IS NULL OR b.title LIKE %:title%) AND "
-            + "(:year IS NULL OR b.year = :year)"
-    )
-    Page<Book> findAll(@Param("isbn") String isbn, @Param("author") String author,
-        @Param("genre") String genre, @Param("image") String image, @Param("pages") Integer pages,
-        @Param("publisher") String publisher, @Param("subtitle") String subtitle,
-        @Param("title") String title, @Param("year") String year, Pageable pageable);
+    List<Book> findAllByIdIn(Collection<Long> ids);
 
     Optional<Book> findByIsbn(String isbn);
 
     @Query(
-        value =
-            "SELECT * FROM book WHERE (:genre IS NULL OR genre = CAST(:genre AS VARCHAR)) AND "
-                + "(:publisher IS NULL OR publisher = CAST(:publisher AS VARCHAR)) AND "
-                + "(:year IS NULL OR year = CAST(:year AS VARCHAR))",
+        value = "SELECT * FROM book WHERE " + GENRE_PUBLISHER_YEAR_FILTER,
+        countQuery = "SELECT count(*) FROM book WHERE " + GENRE_PUBLISHER_YEAR_FILTER,
         nativeQuery = true)
     Page<Book> findByGenreAndPublisherAndYear(@Param("genre") String genre,
-        @Param("publisher") String publisher, @Param("year") String year, Pageable pageable);
+        @Param("publisher") String publisher, @Param("year") Integer year, Pageable pageable);
 }
@@ -0,0 +1,74 @@
+package wolox.training.repositories;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import wolox.training.models.Book;
+
+public interface BookRepositoryCustom {
+
+    // Author and publisher are left out, changing them must relink the book through a PUT
+    Set<String> PATCHABLE_FIELDS = ImmutableSet.of("isbn", "genre", "image", "pages", "subtitle",
+        "title", "year");
+
+    // Each one has a (field, id) index, see Sorting
+    Set<String> SORTABLE_FIELDS = ImmutableSet.of("id", "isbn", "title", "year", "pages");
+
+    /**
+     * Books matching the filters. Only the filters that are present become predicates, so each
+     * combination gets its own statement and a bound range can use the {@code (field, id)} index.
+     */
+    Page<Book> findAll(String isbn, String author, String genre, String image, Integer pages,
+        String publisher, String subtitle, String title, Integer year, Integer yearFrom,
+        Integer yearTo, Integer pagesMin, Integer pagesMax, Pageable pageable);
+
+    /**
+     * Same search as {@link #findAll} without the count query, the slice tells whether more books
+     * follow.
+     */
+    Slice<Book> findSlice(String isbn, String author, String genre, String image, Integer pages,
+        String publisher, String subtitle, String title, Integer year, Integer yearFrom,
+        Integer yearTo, Integer pagesMin, Integer pagesMax, Pageable pageable);
+
+    long countAll(String isbn, String author, String genre, String image, Integer pages,
+        String publisher, String subtitle, String title, Integer year, Integer yearFrom,
+        Integer yearTo, Integer pagesMin, Integer pagesMax);
+
+    Page<Map<String, Object>> findAllFields(Collection<String> fields, String isbn, String author,
+        String genre, String image, Integer pages, String publisher, String subtitle, String title,
+        Integer year, Integer yearFrom, Integer yearTo, Integer pagesMin, Integer pagesMax,
+        Pageable pageable);
+
+    /**
+     * Updates only the given columns if the book is still at {@code version}.
+     *
+     * @return the number of updated rows, 0 when the book is missing or was modified meanwhile
+     */
+    int patch(Long id, Long version, Map<String, Object> changes);
+
+    /**
+     * Deletes the given books and their owners' links with set-based statements.
+     *
+     * @return the number of deleted books
+     */
+    long deleteInBulk(Collection<Long> ids);
+
+    /**
+     * Deletes every book matching the filters, as {@link #deleteInBulk(Collection)} does.
+     *
+     * @return the number of deleted books
+     */
+    long deleteMatching(String isbn, String author, String genre, String image, Integer pages,
+        String publisher, String subtitle, String title, Integer year, Integer yearFrom,
+        Integer yearTo, Integer pagesMin, Integer pagesMax);
+
+    /**
+     * Planner estimate of the number of books, see {@link PlannerEstimate}.
+     */
+    OptionalLong estimateCount();
+}
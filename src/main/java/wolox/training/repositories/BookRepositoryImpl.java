@@ -0,0 +1,221 @@
+package wolox.training.repositories;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import wolox.training.events.EntityChangeEvent;
+import wolox.training.models.Book;
+import wolox.training.models.Contributor;
+import wolox.training.models.Names;
+
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    private static final Set<String> FIELDS = ImmutableSet.of("id", "isbn", "author", "genre",
+        "image", "pages", "publisher", "subtitle", "title", "year");
+
+    private static final String[] JOIN_TABLES = {"book_user", "book_author", "book_publisher"};
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public Page<Book> findAll(String isbn, String author, String genre, String image,
+        Integer pages, String publisher, String subtitle, String title, Integer year,
+        Integer yearFrom, Integer yearTo, Integer pagesMin, Integer pagesMax, Pageable pageable) {
+        Specification<Book> filter = filter(isbn, author, genre, image, pages, publisher,
+            subtitle, title, year, yearFrom, yearTo, pagesMin, pagesMax);
+        return PageableExecutionUtils.getPage(select(filter, pageable, 0), pageable,
+            () -> count(filter));
+    }
+
+    @Override
+    public Slice<Book> findSlice(String isbn, String author, String genre, String image,
+        Integer pages, String publisher, String subtitle, String title, Integer year,
+        Integer yearFrom, Integer yearTo, Integer pagesMin, Integer pagesMax, Pageable pageable) {
+        // One extra row tells whether another slice follows
+        List<Book> books = select(filter(isbn, author, genre, image, pages, publisher, subtitle,
+            title, year, yearFrom, yearTo, pagesMin, pagesMax), pageable, 1);
+        boolean hasNext = pageable.isPaged() && books.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? books.subList(0, pageable.getPageSize()) : books,
+            pageable, hasNext);
+    }
+
+    @Override
+    public long countAll(String isbn, String author, String genre, String image, Integer pages,
+        String publisher, String subtitle, String title, Integer year, Integer yearFrom,
+        Integer yearTo, Integer pagesMin, Integer pagesMax) {
+        return count(filter(isbn, author, genre, image, pages, publisher, subtitle, title, year,
+            yearFrom, yearTo, pagesMin, pagesMax));
+    }
+
+    @Override
+    public Page<Map<String, Object>> findAllFields(Collection<String> fields, String isbn,
+        String author, String genre, String image, Integer pages, String publisher,
+        String subtitle, String title, Integer year, Integer yearFrom, Integer yearTo,
+        Integer pagesMin, Integer pagesMax, Pageable pageable) {
+        return FieldProjection.findAll(entityManager, Book.class, FIELDS, fields,
+            filter(isbn, author, genre, image, pages, publisher, subtitle, title, year, yearFrom,
+                yearTo, pagesMin, pagesMax),
+            pageable)
+            // The book exposes its year as text, projections must not turn it into a number
+            .map(row -> {
+                row.computeIfPresent("year", (field, value) -> String.valueOf(value));
+                return row;
+            });
+    }
+
+    @Override
+    @Transactional
+    public int patch(Long id, Long version, Map<String, Object> changes) {
+        int updated = FieldPatch.update(entityManager, Book.class, id, version, changes);
+
+        if (updated > 0) {
+            eventPublisher.publishEvent(EntityChangeEvent.updated(Book.class, id, version + 1));
+        }
+
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public long deleteInBulk(Collection<Long> ids) {
+        return BulkDelete.delete(entityManager, eventPublisher, Book.class,
+            new ArrayList<>(new LinkedHashSet<>(ids)), "book_id", JOIN_TABLES);
+    }
+
+    @Override
+    @Transactional
+    public long deleteMatching(String isbn, String author, String genre, String image,
+        Integer pages, String publisher, String subtitle, String title, Integer year,
+        Integer yearFrom, Integer yearTo, Integer pagesMin, Integer pagesMax) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Book> root = query.from(Book.class);
+        query.select(root.get("id"));
+        query.where(filter(isbn, author, genre, image, pages, publisher, subtitle, title, year,
+            yearFrom, yearTo, pagesMin, pagesMax).toPredicate(root, query, criteriaBuilder));
+
+        // Only ids are read, they are needed to invalidate whatever was built from these books
+        List<Long> ids = entityManager.createQuery(query).getResultList();
+        return BulkDelete
+            .delete(entityManager, eventPublisher, Book.class, ids, "book_id", JOIN_TABLES);
+    }
+
+    @Override
+    public OptionalLong estimateCount() {
+        return PlannerEstimate.rows(entityManager, "book");
+    }
+
+    private List<Book> select(Specification<Book> filter, Pageable pageable, int extraRows) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = criteriaBuilder.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+        query.where(filter.toPredicate(root, query, criteriaBuilder));
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder));
+
+        TypedQuery<Book> typedQuery = entityManager.createQuery(query);
+
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize() + extraRows);
+        }
+
+        return typedQuery.getResultList();
+    }
+
+    private long count(Specification<Book> filter) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Book> root = query.from(Book.class);
+        query.select(criteriaBuilder.count(root));
+        query.where(filter.toPredicate(root, query, criteriaBuilder));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    // Absent filters add no predicate, an "IS NULL OR" form would keep ranges off their indexes
+    private static Specification<Book> filter(String isbn, String author, String genre,
+        String image, Integer pages, String publisher, String subtitle, String title,
+        Integer year, Integer yearFrom, Integer yearTo, Integer pagesMin, Integer pagesMax) {
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            addEqual(predicates, criteriaBuilder, root.get("isbn"), isbn);
+            addContributor(predicates, query, criteriaBuilder, root, "authors", author);
+            addEqual(predicates, criteriaBuilder, root.get("genre"), genre);
+            addEqual(predicates, criteriaBuilder, root.get("image"), image);
+            addEqual(predicates, criteriaBuilder, root.get("pages"), pages);
+            addContributor(predicates, query, criteriaBuilder, root, "publishers", publisher);
+            addContains(predicates, criteriaBuilder, root, "subtitle", subtitle);
+            addContains(predicates, criteriaBuilder, root, "title", title);
+            addEqual(predicates, criteriaBuilder, root.get("year"), year);
+            addRange(predicates, criteriaBuilder, root.get("year"), yearFrom, yearTo);
+            addRange(predicates, criteriaBuilder, root.get("pages"), pagesMin, pagesMax);
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static void addEqual(List<Predicate> predicates, CriteriaBuilder criteriaBuilder,
+        Path<?> path, Object value) {
+        if (value != null) {
+            predicates.add(criteriaBuilder.equal(path, value));
+        }
+    }
+
+    private static void addRange(List<Predicate> predicates, CriteriaBuilder criteriaBuilder,
+        Path<Integer> path, Integer min, Integer max) {
+        if (min != null) {
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(path, min));
+        }
+
+        if (max != null) {
+            predicates.add(criteriaBuilder.lessThanOrEqualTo(path, max));
+        }
+    }
+
+    private static void addContains(List<Predicate> predicates, CriteriaBuilder criteriaBuilder,
+        Root<Book> root, String field, String value) {
+        if (value != null) {
+            predicates.add(criteriaBuilder.like(root.get(field), "%" + value + "%"));
+        }
+    }
+
+    private static void addContributor(List<Predicate> predicates, CriteriaQuery<?> query,
+        CriteriaBuilder criteriaBuilder, Root<Book> root, String association, String name) {
+        if (name != null) {
+            // Correlated EXISTS on the join table, resolved through the normalized name index
+            Subquery<Long> subquery = query.subquery(Long.class);
+            Join<Book, Contributor> contributor = subquery.correlate(root).join(association);
+            subquery.select(contributor.get("id"))
+                .where(criteriaBuilder.equal(contributor.get("normalizedName"),
+                    Names.normalize(name)));
+            predicates.add(criteriaBuilder.exists(subquery));
+        }
+    }
+}
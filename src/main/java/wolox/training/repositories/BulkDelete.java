@@ -0,0 +1,48 @@
+package wolox.training.repositories;
+
+import com.google.common.collect.Lists;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+import wolox.training.events.EntityChangeEvent;
+
+/**
+ * Deletes rows with set-based statements, join table first, instead of loading and removing each
+ * entity. The caller must run it inside a transaction.
+ */
+final class BulkDelete {
+
+    private BulkDelete() {
+    }
+
+    static long delete(EntityManager entityManager, ApplicationEventPublisher eventPublisher,
+        Class<?> type, List<Long> ids, String joinColumn, String... joinTables) {
+        // Pending changes must reach the database before the statements bypass the context
+        entityManager.flush();
+
+        long deleted = 0;
+        for (List<Long> chunk : Lists.partition(ids, MultiGet.CHUNK_SIZE)) {
+            for (String joinTable : joinTables) {
+                entityManager
+                    .createNativeQuery(
+                        "DELETE FROM " + joinTable + " WHERE " + joinColumn + " IN (:ids)")
+                    .setParameter("ids", chunk)
+                    .executeUpdate();
+            }
+
+            deleted += entityManager
+                .createQuery("DELETE FROM " + entityManager.getMetamodel().entity(type).getName()
+                    + " e WHERE e.id IN (:ids)")
+                .setParameter("ids", chunk)
+                .executeUpdate();
+        }
+
+        entityManager.clear();
+
+        if (!ids.isEmpty()) {
+            eventPublisher.publishEvent(EntityChangeEvent.deleted(type, ids));
+        }
+
+        return deleted;
+    }
+}
@@ -0,0 +1,40 @@
+package wolox.training.repositories;
+
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import org.springframework.core.convert.support.DefaultConversionService;
+
+/**
+ * Applies a partial update with a single {@code UPDATE ... WHERE id = ? AND version = ?}, touching
+ * only the given columns and bumping the version, without loading the entity first.
+ */
+final class FieldPatch {
+
+    private FieldPatch() {
+    }
+
+    static <T> int update(EntityManager entityManager, Class<T> type, Long id, Long version,
+        Map<String, Object> changes) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = criteriaBuilder.createCriteriaUpdate(type);
+        Root<T> root = update.from(type);
+        Path<Long> versionPath = root.get("version");
+
+        changes.forEach((field, value) -> {
+            // API values may differ from the column type, e.g. the book year travels as text
+            Path<Object> path = root.get(field);
+            update.set(path, DefaultConversionService.getSharedInstance()
+                .convert(value, path.getJavaType()));
+        });
+        update.set(versionPath, criteriaBuilder.sum(versionPath, 1L));
+        update.where(
+            criteriaBuilder.equal(root.get("id"), id),
+            criteriaBuilder.equal(versionPath, version));
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
@@ -0,0 +1,95 @@
+package wolox.training.repositories;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import wolox.training.exceptions.InvalidFieldsException;
+
+/**
+ * Runs a query selecting only the requested columns of an entity. Rows come back as tuples, so
+ * nothing is hydrated nor tracked by the persistence context.
+ */
+final class FieldProjection {
+
+    private FieldProjection() {
+    }
+
+    static <T> Page<Map<String, Object>> findAll(EntityManager entityManager, Class<T> type,
+        Set<String> allowedFields, Collection<String> fields, Specification<T> filter,
+        Pageable pageable) {
+        List<String> selectedFields = validate(allowedFields, fields);
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<T> root = query.from(type);
+        query.multiselect(selectedFields.stream()
+            .<Selection<?>>map(field -> root.get(field).alias(field))
+            .collect(Collectors.toList()));
+        query.where(filter.toPredicate(root, query, criteriaBuilder));
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+
+        List<Map<String, Object>> content = typedQuery.getResultList().stream()
+            .map(tuple -> toMap(selectedFields, tuple))
+            .collect(Collectors.toList());
+
+        return PageableExecutionUtils.getPage(content, pageable,
+            () -> count(entityManager, type, filter));
+    }
+
+    private static List<String> validate(Set<String> allowedFields, Collection<String> fields) {
+        List<String> selectedFields = fields.stream()
+            .map(String::trim)
+            .filter(field -> !field.isEmpty())
+            .distinct()
+            .collect(Collectors.toList());
+
+        List<String> unknownFields = new ArrayList<>(selectedFields);
+        unknownFields.removeAll(allowedFields);
+
+        if (selectedFields.isEmpty() || !unknownFields.isEmpty()) {
+            throw new InvalidFieldsException("Invalid fields " + unknownFields
+                + ", allowed fields are " + allowedFields);
+        }
+
+        return selectedFields;
+    }
+
+    private static Map<String, Object> toMap(List<String> fields, Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        fields.forEach(field -> row.put(field, tuple.get(field)));
+        return row;
+    }
+
+    private static <T> long count(EntityManager entityManager, Class<T> type,
+        Specification<T> filter) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<T> root = query.from(type);
+        query.select(criteriaBuilder.count(root));
+        query.where(filter.toPredicate(root, query, criteriaBuilder));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -0,0 +1,58 @@
+package wolox.training.repositories;
+
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import wolox.training.exceptions.TooManyIdsException;
+import wolox.training.models.dtos.MultiGetDto;
+
+/**
+ * Resolves a list of ids with as few {@code IN} queries as possible, keeping the order in which the
+ * ids were requested and reporting the ones that don't exist.
+ */
+public final class MultiGet {
+
+    public static final int MAX_IDS = 1000;
+
+    // Keeps statements short and their plans reusable, far from driver bind limits
+    static final int CHUNK_SIZE = 200;
+
+    private MultiGet() {
+    }
+
+    public static <T> MultiGetDto<T> findAll(List<Long> ids,
+        Function<Collection<Long>, List<T>> loader, Function<T, Long> idOf) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinctIds.removeIf(Objects::isNull);
+
+        if (distinctIds.size() > MAX_IDS) {
+            throw new TooManyIdsException("At most " + MAX_IDS + " ids can be requested at once");
+        }
+
+        Map<Long, T> found = new HashMap<>();
+        for (List<Long> chunk : Lists.partition(distinctIds, CHUNK_SIZE)) {
+            loader.apply(chunk).forEach(item -> found.put(idOf.apply(item), item));
+        }
+
+        List<T> items = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+
+        for (Long id : distinctIds) {
+            T item = found.get(id);
+
+            if (item == null) {
+                missing.add(id);
+            } else {
+                items.add(item);
+            }
+        }
+
+        return new MultiGetDto<>(items, missing);
+    }
+}
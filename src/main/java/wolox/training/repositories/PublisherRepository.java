@@ -0,0 +1,11 @@
+package wolox.training.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.repository.CrudRepository;
+import wolox.training.models.Publisher;
+
+public interface PublisherRepository extends CrudRepository<Publisher, Long> {
+
+    List<Publisher> findByNormalizedNameIn(Collection<String> normalizedNames);
+}
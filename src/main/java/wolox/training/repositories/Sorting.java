@@ -0,0 +1,49 @@
+package wolox.training.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Order;
+import wolox.training.exceptions.InvalidSortException;
+
+/**
+ * Restricts page sorts to a single declared field, each backed by a {@code (field, id)} index.
+ * The id is appended as tiebreaker in the direction of the field, so rows with equal values keep
+ * a stable order across pages and the index can be read forwards or backwards.
+ */
+public final class Sorting {
+
+    private static final String ID = "id";
+
+    private Sorting() {
+    }
+
+    public static Pageable stable(Pageable pageable, Set<String> sortableFields) {
+        List<Order> orders = new ArrayList<>();
+        pageable.getSort().forEach(orders::add);
+
+        if (orders.isEmpty()) {
+            return pageable;
+        }
+
+        orders.forEach(order -> {
+            if (!sortableFields.contains(order.getProperty()) || order.isIgnoreCase()) {
+                throw new InvalidSortException(
+                    "Sorting is only allowed on " + String.join(", ", sortableFields));
+            }
+        });
+
+        if (orders.stream().filter(order -> !ID.equals(order.getProperty())).count() > 1) {
+            throw new InvalidSortException("Sorting is only allowed on a single field");
+        }
+
+        if (orders.stream().noneMatch(order -> ID.equals(order.getProperty()))) {
+            orders.add(new Order(orders.get(0).getDirection(), ID));
+        }
+
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(orders));
+    }
+}
@@ -1,27 +1,35 @@
 package wolox.training.repositories;
 
-import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import wolox.training.models.User;
 
-public interface UserRepository extends CrudRepository<User, Long> {
+public interface UserRepository extends CrudRepository<User, Long>, UserRepositoryCustom {
 
-    Optional<User> findFirstByUsername(String name);
+    // A unique index lookup, the username matches whatever its case and surrounding spaces
+    @Query("SELECT u FROM users u WHERE u.normalizedUsername = LOWER(TRIM(:username))")
+    Optional<User> findFirstByUsername(@Param("username") String username);
 
-    Page<User> findAll(Pageable pageable);
+    // Books are part of the user JSON, the lookups answered with a user fetch them up front
+    @EntityGraph(attributePaths = "books")
+    @Query("SELECT u FROM users u WHERE u.normalizedUsername = LOWER(TRIM(:username))")
+    Optional<User> findFirstWithBooksByUsername(@Param("username") String username);
+
+    @EntityGraph(attributePaths = "books")
+    Optional<User> findWithBooksById(Long id);
+
+    @EntityGraph(attributePaths = "books")
+    List<User> findAllByIdIn(Collection<Long> ids);
 
-    @Query(
-        value =
-            "SELECT * FROM users WHERE (:startDate IS NULL OR birth_date >= :startDate) AND "
-                + "(:endDate IS NULL OR birth_date <= :endDate) AND "
-                + "(:name IS NULL OR name LIKE %:name%)",
-        nativeQuery = true
-    )
-    Page<User> findByBirthDateAndName(@Param("startDate") LocalDate startDate,
-        @Param("endDate") LocalDate endDate, @Param("name") String name, Pageable pageable);
+    @Query("SELECT u.normalizedUsername FROM users u WHERE u.id IN :ids")
+    List<String> findNormalizedUsernamesByIdIn(@Param("ids") Collection<Long> ids);
+
+    Page<User> findAll(Pageable pageable);
 }
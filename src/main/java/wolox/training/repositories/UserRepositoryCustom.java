@@ -0,0 +1,72 @@
+package wolox.training.repositories;
+
+import com.google.common.collect.ImmutableSet;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import wolox.training.models.User;
+
+public interface UserRepositoryCustom {
+
+    Set<String> PATCHABLE_FIELDS = ImmutableSet.of("username", "name", "birthDate");
+
+    // Each one has a (field, id) index, see Sorting
+    Set<String> SORTABLE_FIELDS = ImmutableSet.of("id", "username", "name", "birthDate");
+
+    int MAX_SEARCH_SIZE = 100;
+
+    Page<Map<String, Object>> findAllFields(Collection<String> fields, Pageable pageable);
+
+    /**
+     * Page of users with their books, which are part of the user JSON. The ids of the page are
+     * selected first, a fetch join of the books could only be paged in memory.
+     */
+    Page<User> findAllWithBooks(Pageable pageable);
+
+    /**
+     * Same as {@link #findAllWithBooks} without the count query.
+     */
+    Slice<User> findSliceWithBooks(Pageable pageable);
+
+    /**
+     * Users born between the dates whose name contains {@code name}, ordered by birth date and id
+     * and starting after the given user, so every page is an index range scan. Any filter can be
+     * null.
+     */
+    List<User> search(LocalDate startDate, LocalDate endDate, String name,
+        LocalDate afterBirthDate, Long afterId, int limit);
+
+    /**
+     * Counts the users matching the {@link #search} filters per age range as of {@code today},
+     * all ranges in one aggregated query.
+     *
+     * @return the counts keyed by range, like {@code 18-29} or {@code 65+}, youngest first
+     */
+    Map<String, Long> countByAge(LocalDate startDate, LocalDate endDate, String name,
+        LocalDate today);
+
+    /**
+     * Updates only the given columns if the user is still at {@code version}.
+     *
+     * @return the number of updated rows, 0 when the user is missing or was modified meanwhile
+     */
+    int patch(Long id, Long version, Map<String, Object> changes);
+
+    /**
+     * Deletes the given users and their book links with set-based statements.
+     *
+     * @return the number of deleted users
+     */
+    long deleteInBulk(Collection<Long> ids);
+
+    /**
+     * Planner estimate of the number of users, see {@link PlannerEstimate}.
+     */
+    OptionalLong estimateCount();
+}
@@ -0,0 +1,220 @@
+package wolox.training.repositories;
+
+import com.google.common.collect.ImmutableSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import wolox.training.events.EntityChangeEvent;
+import wolox.training.models.Names;
+import wolox.training.models.User;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    // The password hash is never exposed
+    private static final Set<String> FIELDS = ImmutableSet.of("id", "username", "name",
+        "birthDate");
+
+    // Lowest age of each range counted by countByAge, the last range is open ended
+    private static final int[] AGE_RANGES = {0, 18, 30, 45, 65};
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public Page<Map<String, Object>> findAllFields(Collection<String> fields, Pageable pageable) {
+        return FieldProjection.findAll(entityManager, User.class, FIELDS, fields,
+            (root, query, criteriaBuilder) -> criteriaBuilder.conjunction(), pageable);
+    }
+
+    @Override
+    public Page<User> findAllWithBooks(Pageable pageable) {
+        return PageableExecutionUtils.getPage(withBooks(pageIds(pageable, 0)), pageable,
+            () -> entityManager.createQuery("SELECT COUNT(u) FROM users u", Long.class)
+                .getSingleResult());
+    }
+
+    @Override
+    public Slice<User> findSliceWithBooks(Pageable pageable) {
+        // One extra id tells whether there is a next page
+        List<Long> ids = pageIds(pageable, 1);
+        boolean hasNext = pageable.isPaged() && ids.size() > pageable.getPageSize();
+        return new SliceImpl<>(withBooks(hasNext ? ids.subList(0, pageable.getPageSize()) : ids),
+            pageable, hasNext);
+    }
+
+    @Override
+    public List<User> search(LocalDate startDate, LocalDate endDate, String name,
+        LocalDate afterBirthDate, Long afterId, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<User> root = query.from(User.class);
+        Path<LocalDate> birthDate = root.get("birthDate");
+        Path<Long> id = root.get("id");
+        List<Predicate> predicates = filter(criteriaBuilder, root, startDate, endDate, name);
+
+        if (afterBirthDate != null && afterId != null) {
+            predicates.add(criteriaBuilder.or(
+                criteriaBuilder.greaterThan(birthDate, afterBirthDate),
+                criteriaBuilder.and(criteriaBuilder.equal(birthDate, afterBirthDate),
+                    criteriaBuilder.greaterThan(id, afterId))));
+        }
+
+        query.select(id)
+            .where(predicates.toArray(new Predicate[0]))
+            .orderBy(criteriaBuilder.asc(birthDate), criteriaBuilder.asc(id));
+        return withBooks(entityManager.createQuery(query).setMaxResults(limit).getResultList());
+    }
+
+    @Override
+    public Map<String, Long> countByAge(LocalDate startDate, LocalDate endDate, String name,
+        LocalDate today) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        Path<LocalDate> birthDate = root.get("birthDate");
+        List<Selection<?>> counts = new ArrayList<>();
+
+        // COUNT(CASE WHEN <range> THEN 1 END) per range, so one scan fills every bucket
+        for (int i = 0; i < AGE_RANGES.length; i++) {
+            Predicate range = criteriaBuilder
+                .lessThanOrEqualTo(birthDate, today.minusYears(AGE_RANGES[i]));
+
+            if (i + 1 < AGE_RANGES.length) {
+                range = criteriaBuilder.and(range, criteriaBuilder
+                    .greaterThan(birthDate, today.minusYears(AGE_RANGES[i + 1])));
+            }
+
+            counts.add(criteriaBuilder.count(criteriaBuilder.<Long>selectCase().when(range, 1L)));
+        }
+
+        query.multiselect(counts)
+            .where(filter(criteriaBuilder, root, startDate, endDate, name)
+                .toArray(new Predicate[0]));
+        Tuple tuple = entityManager.createQuery(query).getSingleResult();
+
+        Map<String, Long> countsByAge = new LinkedHashMap<>();
+        for (int i = 0; i < AGE_RANGES.length; i++) {
+            String range = i + 1 < AGE_RANGES.length
+                ? AGE_RANGES[i] + "-" + (AGE_RANGES[i + 1] - 1) : AGE_RANGES[i] + "+";
+            countsByAge.put(range, tuple.get(i, Long.class));
+        }
+
+        return countsByAge;
+    }
+
+    @Override
+    @Transactional
+    public int patch(Long id, Long version, Map<String, Object> changes) {
+        if (changes.containsKey("username")) {
+            // The bulk update skips the setter, which keeps the lookup column in sync
+            changes = new LinkedHashMap<>(changes);
+            changes.put("normalizedUsername",
+                Names.normalize(Objects.toString(changes.get("username"), null)));
+        }
+
+        int updated = FieldPatch.update(entityManager, User.class, id, version, changes);
+
+        if (updated > 0) {
+            eventPublisher.publishEvent(EntityChangeEvent.updated(User.class, id, version + 1));
+        }
+
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public long deleteInBulk(Collection<Long> ids) {
+        return BulkDelete.delete(entityManager, eventPublisher, User.class,
+            new ArrayList<>(new LinkedHashSet<>(ids)), "user_id", "book_user");
+    }
+
+    @Override
+    public OptionalLong estimateCount() {
+        return PlannerEstimate.rows(entityManager, "users");
+    }
+
+    private List<Long> pageIds(Pageable pageable, int extra) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<User> root = query.from(User.class);
+        query.select(root.get("id"))
+            .orderBy(QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder));
+        TypedQuery<Long> typedQuery = entityManager.createQuery(query);
+
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize() + extra);
+        }
+
+        return typedQuery.getResultList();
+    }
+
+    /**
+     * Loads the users with their books in the order of {@code ids}. Books are part of the user
+     * JSON, a fetch join in the limited query would page in memory.
+     */
+    private List<User> withBooks(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, User> users = entityManager
+            .createQuery("SELECT DISTINCT u FROM users u LEFT JOIN FETCH u.books "
+                + "WHERE u.id IN (:ids)", User.class)
+            .setParameter("ids", ids)
+            .getResultList().stream()
+            .collect(Collectors.toMap(User::getId, Function.identity()));
+        return ids.stream().map(users::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private static List<Predicate> filter(CriteriaBuilder criteriaBuilder, Root<User> root,
+        LocalDate startDate, LocalDate endDate, String name) {
+        Path<LocalDate> birthDate = root.get("birthDate");
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (startDate != null) {
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(birthDate, startDate));
+        }
+
+        if (endDate != null) {
+            predicates.add(criteriaBuilder.lessThanOrEqualTo(birthDate, endDate));
+        }
+
+        if (name != null) {
+            predicates.add(criteriaBuilder.like(root.get("name"), "%" + name + "%"));
+        }
+
+        return predicates;
+    }
+}
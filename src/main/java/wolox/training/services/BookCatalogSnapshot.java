@@ -0,0 +1,341 @@
+package wolox.training.services;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort.Order;
+import org.springframework.stereotype.Service;
+import wolox.training.models.Book;
+import wolox.training.models.Contributor;
+import wolox.training.models.Names;
+import wolox.training.repositories.BookRepository;
+
+/**
+ * Column per field copy of the filterable book data, with strings replaced by dictionary codes,
+ * so searches on genre, publisher, year and pages are answered by scanning primitive arrays and
+ * only the returned page is loaded from the database. Searches on other fields are not answered.
+ * Results follow the committed changes, so they may briefly lag behind writes of other nodes.
+ */
+@Service
+@ConditionalOnProperty(name = "training.books.snapshot.enabled", havingValue = "true")
+public class BookCatalogSnapshot extends
+    IncrementalBookIndex<BookCatalogSnapshot.State, Integer> {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_GENRE = -1;
+    private static final int[] NO_PUBLISHERS = new int[0];
+
+    private static final Set<String> SORTABLE_FIELDS = ImmutableSet.of("id", "year", "pages");
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    /**
+     * Same search as {@code BookRepository.findAll}, empty when it filters or sorts on fields
+     * the snapshot doesn't keep.
+     */
+    public Optional<Page<Book>> findAll(String isbn, String author, String genre, String image,
+        Integer pages, String publisher, String subtitle, String title, Integer year,
+        Integer yearFrom, Integer yearTo, Integer pagesMin, Integer pagesMax, Pageable pageable) {
+        boolean unknownFilter = Arrays.asList(isbn, author, image, subtitle, title).stream()
+            .anyMatch(Objects::nonNull);
+        boolean unknownSort = pageable.getSort().stream()
+            .anyMatch(order -> !SORTABLE_FIELDS.contains(order.getProperty()));
+
+        if (unknownFilter || unknownSort) {
+            return Optional.empty();
+        }
+
+        List<Long> pageIds = new ArrayList<>();
+        int total = read(state -> {
+            Integer genreCode = genre == null ? null : state.genreCodes.get(genre);
+            Integer publisherCode = publisher == null ? null
+                : state.publisherCodes.get(Names.normalize(publisher));
+
+            if ((genre != null && genreCode == null)
+                || (publisher != null && publisherCode == null)) {
+                return 0;
+            }
+
+            int[] matches = new int[state.size];
+            int count = 0;
+
+            for (int slot = 0; slot < state.size; slot++) {
+                if (state.ids[slot] != 0
+                    && (genreCode == null || state.genres[slot] == genreCode)
+                    && (publisherCode == null || contains(state.publishers[slot], publisherCode))
+                    && within(state.years[slot], year, year)
+                    && within(state.years[slot], yearFrom, yearTo)
+                    && within(state.pages[slot], pages, pages)
+                    && within(state.pages[slot], pagesMin, pagesMax)) {
+                    matches[count++] = slot;
+                }
+            }
+
+            int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), count) : 0;
+            int to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), count) : count;
+
+            int[] sorted = firstSorted(matches, count, to, comparator(state, pageable));
+
+            for (int i = from; i < to; i++) {
+                pageIds.add(state.ids[sorted[i]]);
+            }
+
+            return count;
+        });
+
+        if (pageIds.isEmpty()) {
+            return Optional.of(new PageImpl<>(new ArrayList<>(), pageable, total));
+        }
+
+        // Books deleted since the scan are left out of the page
+        Map<Long, Book> books = bookRepository.findAllByIdIn(pageIds).stream()
+            .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<Book> content = pageIds.stream()
+            .map(books::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+
+        return Optional.of(new PageImpl<>(content, pageable, total));
+    }
+
+    @Override
+    protected State newState() {
+        return new State();
+    }
+
+    @Override
+    protected Integer add(State state, Book book) {
+        int slot = state.freeSlots.isEmpty() ? state.size++ : state.freeSlots.pop();
+
+        if (slot == state.ids.length) {
+            int capacity = state.ids.length * 2;
+            state.ids = Arrays.copyOf(state.ids, capacity);
+            state.years = Arrays.copyOf(state.years, capacity);
+            state.pages = Arrays.copyOf(state.pages, capacity);
+            state.genres = Arrays.copyOf(state.genres, capacity);
+            state.publishers = Arrays.copyOf(state.publishers, capacity);
+        }
+
+        state.ids[slot] = book.getId();
+        state.years[slot] = Short.parseShort(book.getYear());
+        state.pages[slot] = book.getPages();
+        state.genres[slot] = book.getGenre() == null ? NO_GENRE
+            : state.genreCodes.acquire(book.getGenre());
+        state.publishers[slot] = Contributor.split(book.getPublisher()).keySet().stream()
+            .mapToInt(state.publisherCodes::acquire)
+            .toArray();
+        return slot;
+    }
+
+    @Override
+    protected void remove(State state, Integer slot) {
+        if (state.genres[slot] != NO_GENRE) {
+            state.genreCodes.release(state.genres[slot]);
+        }
+
+        for (int code : state.publishers[slot]) {
+            state.publisherCodes.release(code);
+        }
+
+        state.ids[slot] = 0;
+        state.publishers[slot] = NO_PUBLISHERS;
+        state.freeSlots.push(slot);
+    }
+
+    /**
+     * Sorts the first {@code limit} of the slots with a bounded heap, so a page costs
+     * O(n log(offset + size)) without boxing each match.
+     */
+    private static int[] firstSorted(int[] slots, int count, int limit,
+        SlotComparator comparator) {
+        // Max-heap of the smallest slots seen so far, its root is the one to evict next
+        int[] heap = new int[limit];
+        int size = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (size < limit) {
+                heap[size] = slots[i];
+                siftUp(heap, size++, comparator);
+            } else if (limit > 0 && comparator.compare(slots[i], heap[0]) < 0) {
+                heap[0] = slots[i];
+                siftDown(heap, 0, size, comparator);
+            }
+        }
+
+        for (int end = size - 1; end > 0; end--) {
+            swap(heap, 0, end);
+            siftDown(heap, 0, end, comparator);
+        }
+
+        return heap;
+    }
+
+    private static void siftUp(int[] heap, int index, SlotComparator comparator) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+
+            if (comparator.compare(heap[index], heap[parent]) <= 0) {
+                return;
+            }
+
+            swap(heap, index, parent);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int index, int size, SlotComparator comparator) {
+        while (2 * index + 1 < size) {
+            int child = 2 * index + 1;
+
+            if (child + 1 < size && comparator.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+
+            if (comparator.compare(heap[child], heap[index]) <= 0) {
+                return;
+            }
+
+            swap(heap, index, child);
+            index = child;
+        }
+    }
+
+    private static void swap(int[] heap, int first, int second) {
+        int value = heap[first];
+        heap[first] = heap[second];
+        heap[second] = value;
+    }
+
+    private static SlotComparator comparator(State state, Pageable pageable) {
+        SlotComparator comparator = (first, second) -> 0;
+
+        for (Order order : pageable.getSort()) {
+            SlotComparator key = state.sortKeys.get(order.getProperty());
+            SlotComparator previous = comparator;
+            comparator = order.isAscending()
+                ? (first, second) -> {
+                    int result = previous.compare(first, second);
+                    return result != 0 ? result : key.compare(first, second);
+                }
+                : (first, second) -> {
+                    int result = previous.compare(first, second);
+                    return result != 0 ? result : key.compare(second, first);
+                };
+        }
+
+        // Ties keep the id order, so pages don't overlap
+        SlotComparator sorted = comparator;
+        SlotComparator byId = state.sortKeys.get("id");
+        return (first, second) -> {
+            int result = sorted.compare(first, second);
+            return result != 0 ? result : byId.compare(first, second);
+        };
+    }
+
+    private static boolean contains(int[] codes, int code) {
+        for (int value : codes) {
+            if (value == code) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean within(int value, Integer min, Integer max) {
+        return (min == null || value >= min) && (max == null || value <= max);
+    }
+
+    static final class State {
+
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private short[] years = new short[INITIAL_CAPACITY];
+        private int[] pages = new int[INITIAL_CAPACITY];
+        private int[] genres = new int[INITIAL_CAPACITY];
+        private int[][] publishers = new int[INITIAL_CAPACITY][];
+
+        // Slots up to size may be free, those have a 0 id
+        private int size;
+
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+        private final Dictionary genreCodes = new Dictionary();
+
+        private final Dictionary publisherCodes = new Dictionary();
+
+        private final Map<String, SlotComparator> sortKeys = ImmutableMap.of(
+            "id", (first, second) -> Long.compare(ids[first], ids[second]),
+            "year", (first, second) -> Short.compare(years[first], years[second]),
+            "pages", (first, second) -> Integer.compare(pages[first], pages[second]));
+    }
+
+    /**
+     * Codes of the values in use, counted per slot so a code is freed and reused once no slot
+     * carries its value anymore.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final Deque<Integer> freeCodes = new ArrayDeque<>();
+        private int[] uses = new int[INITIAL_CAPACITY];
+
+        private Integer get(String value) {
+            return codes.get(value);
+        }
+
+        private int acquire(String value) {
+            Integer code = codes.get(value);
+
+            if (code == null) {
+                code = freeCodes.isEmpty() ? values.size() : freeCodes.pop();
+
+                if (code == values.size()) {
+                    values.add(value);
+                } else {
+                    values.set(code, value);
+                }
+
+                if (code == uses.length) {
+                    uses = Arrays.copyOf(uses, uses.length * 2);
+                }
+
+                codes.put(value, code);
+            }
+
+            uses[code]++;
+            return code;
+        }
+
+        private void release(int code) {
+            if (--uses[code] == 0) {
+                codes.remove(values.get(code));
+                values.set(code, null);
+                freeCodes.push(code);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface SlotComparator {
+
+        int compare(int first, int second);
+    }
+}
@@ -0,0 +1,269 @@
+package wolox.training.services;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Service;
+import wolox.training.models.Book;
+import wolox.training.models.Contributor;
+import wolox.training.models.Names;
+import wolox.training.models.dtos.FacetsDto;
+
+/**
+ * Keeps one compressed bitmap per genre, publisher, year, author and number of pages over dense
+ * book ordinals, so facet counts are bitmap intersections instead of one {@code GROUP BY} per
+ * facet. Books can be filtered by those values and by year and pages ranges, the text filters of
+ * the search (isbn, image, title and subtitle) are not supported.
+ */
+@Service
+public class BookFacetIndex extends
+    IncrementalBookIndex<BookFacetIndex.State, BookFacetIndex.Entry> {
+
+    public static final int MAX_VALUES = 100;
+
+    private static final String GENRE = "genre";
+    private static final String PUBLISHER = "publisher";
+    private static final String YEAR = "year";
+    private static final String AUTHOR = "author";
+
+    private static final List<String> FACETS = Arrays.asList(GENRE, PUBLISHER, YEAR, AUTHOR);
+
+    /**
+     * Counts the books matching the filters and, per facet, the {@code limit} values carried by
+     * most of them.
+     */
+    public FacetsDto count(String author, String genre, Integer pages, String publisher,
+        Integer year, Integer yearFrom, Integer yearTo, Integer pagesMin, Integer pagesMax,
+        int limit) {
+        Preconditions.checkArgument(limit > 0, "Limit must be positive");
+        Map<String, String> filters = new LinkedHashMap<>();
+        filters.put(GENRE, genre);
+        filters.put(PUBLISHER, publisher);
+        filters.put(YEAR, year == null ? null : String.valueOf(year));
+        filters.put(AUTHOR, author);
+
+        return read(state -> {
+            RoaringBitmap matching = state.indexed.clone();
+
+            filters.forEach((facet, value) -> {
+                if (value != null) {
+                    and(matching, state.bitmaps
+                        .getOrDefault(facet, Collections.emptyMap())
+                        .get(key(facet, value)));
+                }
+            });
+
+            if (pages != null) {
+                and(matching, state.pages.get(pages));
+            }
+
+            if (yearFrom != null || yearTo != null) {
+                and(matching, within(state.years, yearFrom, yearTo));
+            }
+
+            if (pagesMin != null || pagesMax != null) {
+                and(matching, within(state.pages, pagesMin, pagesMax));
+            }
+
+            Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+            FACETS.forEach(facet -> counts.put(facet, top(state, facet, matching, limit)));
+            return new FacetsDto(matching.getLongCardinality(), counts);
+        });
+    }
+
+    @Override
+    protected State newState() {
+        return new State();
+    }
+
+    @Override
+    protected Entry add(State state, Book book) {
+        int ordinal = state.freeOrdinals.isEmpty() ? state.nextOrdinal++
+            : state.freeOrdinals.pop();
+        Entry entry = new Entry(ordinal, values(book), book.getPages());
+
+        entry.values.forEach((facet, values) -> values.forEach((key, label) -> {
+            state.bitmaps.computeIfAbsent(facet, f -> new HashMap<>())
+                .computeIfAbsent(key, k -> new RoaringBitmap())
+                .add(ordinal);
+            state.labels.computeIfAbsent(facet, f -> new HashMap<>()).putIfAbsent(key, label);
+        }));
+        entry.values.get(YEAR).keySet().forEach(key ->
+            state.years.computeIfAbsent(Integer.valueOf(key), k -> new RoaringBitmap())
+                .add(ordinal));
+
+        if (entry.pages != null) {
+            state.pages.computeIfAbsent(entry.pages, k -> new RoaringBitmap()).add(ordinal);
+        }
+
+        if (ordinal == state.entries.size()) {
+            state.entries.add(entry);
+        } else {
+            state.entries.set(ordinal, entry);
+        }
+
+        state.indexed.add(ordinal);
+        return entry;
+    }
+
+    @Override
+    protected void remove(State state, Entry entry) {
+        entry.values.forEach((facet, values) -> values.keySet().forEach(key -> {
+            RoaringBitmap bitmap = state.bitmaps.get(facet).get(key);
+            bitmap.remove(entry.ordinal);
+
+            if (bitmap.isEmpty()) {
+                state.bitmaps.get(facet).remove(key);
+                state.labels.get(facet).remove(key);
+            }
+        }));
+        entry.values.get(YEAR).keySet()
+            .forEach(key -> remove(state.years, Integer.valueOf(key), entry.ordinal));
+
+        if (entry.pages != null) {
+            remove(state.pages, entry.pages, entry.ordinal);
+        }
+
+        state.entries.set(entry.ordinal, null);
+        state.indexed.remove(entry.ordinal);
+        state.freeOrdinals.push(entry.ordinal);
+    }
+
+    private static Map<String, Integer> top(State state, String facet, RoaringBitmap matching,
+        int limit) {
+        Map<String, RoaringBitmap> bitmaps = state.bitmaps
+            .getOrDefault(facet, Collections.emptyMap());
+        Map<String, Integer> counts = new HashMap<>();
+
+        if (matching.getLongCardinality() < bitmaps.size()) {
+            // Fewer matching books than values, only the values they carry are counted
+            IntIterator ordinals = matching.getIntIterator();
+
+            while (ordinals.hasNext()) {
+                state.entries.get(ordinals.next()).values.get(facet).keySet()
+                    .forEach(key -> counts.merge(key, 1, Integer::sum));
+            }
+        } else {
+            bitmaps.forEach((key, bitmap) -> {
+                int count = RoaringBitmap.andCardinality(matching, bitmap);
+
+                if (count > 0) {
+                    counts.put(key, count);
+                }
+            });
+        }
+
+        Map<String, Integer> top = new LinkedHashMap<>();
+        counts.entrySet().stream()
+            .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()))
+            .limit(limit)
+            .forEach(count -> top.put(state.labels.get(facet).get(count.getKey()),
+                count.getValue()));
+        return top;
+    }
+
+    private static void and(RoaringBitmap matching, RoaringBitmap bitmap) {
+        if (bitmap == null) {
+            matching.clear();
+        } else {
+            matching.and(bitmap);
+        }
+    }
+
+    private static RoaringBitmap within(NavigableMap<Integer, RoaringBitmap> bitmaps,
+        Integer min, Integer max) {
+        RoaringBitmap matching = new RoaringBitmap();
+
+        if (min != null && max != null && min > max) {
+            return matching;
+        }
+
+        NavigableMap<Integer, RoaringBitmap> range = bitmaps;
+
+        if (min != null) {
+            range = range.tailMap(min, true);
+        }
+
+        if (max != null) {
+            range = range.headMap(max, true);
+        }
+
+        for (RoaringBitmap bitmap : range.values()) {
+            matching.or(bitmap);
+        }
+
+        return matching;
+    }
+
+    private static void remove(Map<Integer, RoaringBitmap> bitmaps, Integer value, int ordinal) {
+        RoaringBitmap bitmap = bitmaps.get(value);
+        bitmap.remove(ordinal);
+
+        if (bitmap.isEmpty()) {
+            bitmaps.remove(value);
+        }
+    }
+
+    private static Map<String, Map<String, String>> values(Book book) {
+        Map<String, Map<String, String>> values = new HashMap<>();
+        values.put(GENRE, book.getGenre() == null ? Collections.emptyMap()
+            : Collections.singletonMap(book.getGenre(), book.getGenre()));
+        values.put(PUBLISHER, Contributor.split(book.getPublisher()));
+        values.put(YEAR, book.getYear() == null ? Collections.emptyMap()
+            : Collections.singletonMap(book.getYear(), book.getYear()));
+        values.put(AUTHOR, Contributor.split(book.getAuthor()));
+        return values;
+    }
+
+    private static String key(String facet, String value) {
+        return PUBLISHER.equals(facet) || AUTHOR.equals(facet) ? Names.normalize(value)
+            : value;
+    }
+
+    static final class State {
+
+        private final Map<String, Map<String, RoaringBitmap>> bitmaps = new HashMap<>();
+
+        // Original spelling of each value, keys are normalized like the search filters
+        private final Map<String, Map<String, String>> labels = new HashMap<>();
+
+        // Numeric values again, ordered so ranges are a union of consecutive bitmaps
+        private final NavigableMap<Integer, RoaringBitmap> years = new TreeMap<>();
+        private final NavigableMap<Integer, RoaringBitmap> pages = new TreeMap<>();
+
+        // Entry of each ordinal, null once its book is removed
+        private final List<Entry> entries = new ArrayList<>();
+
+        private final RoaringBitmap indexed = new RoaringBitmap();
+
+        private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+        private int nextOrdinal;
+    }
+
+    static final class Entry {
+
+        private final int ordinal;
+        private final Map<String, Map<String, String>> values;
+        private final Integer pages;
+
+        private Entry(int ordinal, Map<String, Map<String, String>> values, Integer pages) {
+            this.ordinal = ordinal;
+            this.values = values;
+            this.pages = pages;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package wolox.training.services;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import wolox.training.exceptions.ParseBookException;
+import wolox.training.exceptions.RequestException;
+import wolox.training.models.Book;
+import wolox.training.models.BookImport;
+import wolox.training.models.BookImport.Status;
+import wolox.training.models.dtos.BookDto;
+import wolox.training.repositories.BookImportRepository;
+import wolox.training.repositories.BookRepository;
+
+/**
+ * Imports books from Open Library in the background. Jobs live in the book_import table, one per
+ * ISBN, so they survive restarts and concurrent requests for the same ISBN share a single job.
+ */
+@Service
+public class BookImportService {
+
+    private static final String PARSE_ERROR = "Book couldn't be read from API";
+    private static final String REQUEST_ERROR = "Connection to external API failed";
+    private static final String SAVE_ERROR = "Imported book couldn't be saved";
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImportService.class);
+
+    @Autowired
+    private BookImportRepository bookImportRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OpenLibraryService openLibraryService;
+
+    @Autowired
+    private ContributorService contributorService;
+
+    @Value("${training.books.import.workers:4}")
+    private int workers;
+
+    @Value("${training.books.import.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${training.books.import.lease-seconds:300}")
+    private long leaseSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    private final Set<Long> queuedJobs = ConcurrentHashMap.newKeySet();
+
+    private final Map<Long, CompletableFuture<BookImport>> completions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new ThreadFactoryBuilder().setNameFormat("book-import-%d").build());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public BookImport submit(String isbn) {
+        BookImport job;
+
+        try {
+            job = bookImportRepository
+                .findByIsbn(isbn)
+                .map(this::restartIfFinished)
+                .orElseGet(() -> bookImportRepository.save(new BookImport(isbn)));
+        } catch (DataIntegrityViolationException | ObjectOptimisticLockingFailureException e) {
+            // Another request created or restarted the same job first
+            job = bookImportRepository.findByIsbn(isbn).orElseThrow(() -> e);
+        }
+
+        enqueue(job.getId());
+        return job;
+    }
+
+    public Optional<BookImport> find(Long id) {
+        return bookImportRepository.findById(id);
+    }
+
+    public CompletableFuture<BookImport> completion(BookImport job) {
+        if (job.isFinished()) {
+            return CompletableFuture.completedFuture(job);
+        }
+
+        CompletableFuture<BookImport> completion = completions
+            .computeIfAbsent(job.getId(), id -> new CompletableFuture<>());
+
+        // The job may have finished before the future was registered
+        bookImportRepository
+            .findById(job.getId())
+            .filter(BookImport::isFinished)
+            .ifPresent(this::notifyCompletion);
+
+        return completion;
+    }
+
+    @Scheduled(fixedDelayString = "${training.books.import.sweep-millis:5000}")
+    public void enqueuePendingImports() {
+        restartExpiredImports();
+
+        bookImportRepository
+            .findByStatusInOrderByIdAsc(Collections.singletonList(Status.PENDING))
+            .forEach(job -> enqueue(job.getId()));
+    }
+
+    // Running jobs whose lease expired were lost with their instance, live instances hold a lease
+    private void restartExpiredImports() {
+        for (BookImport job : bookImportRepository
+            .findByStatusAndClaimExpired(Status.RUNNING, Instant.now())) {
+            try {
+                job.restart();
+                bookImportRepository.save(job);
+            } catch (ObjectOptimisticLockingFailureException e) {
+                // Its instance finished it in the meantime
+            }
+        }
+    }
+
+    private BookImport restartIfFinished(BookImport job) {
+        if (!job.isFinished()) {
+            return job;
+        }
+
+        job.restart();
+        return bookImportRepository.save(job);
+    }
+
+    private void enqueue(Long jobId) {
+        if (!queuedJobs.add(jobId)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> process(jobId));
+        } catch (RejectedExecutionException e) {
+            // The queue is full, the job stays pending until the next sweep
+            queuedJobs.remove(jobId);
+        }
+    }
+
+    private void process(Long jobId) {
+        try {
+            Optional<BookImport> pendingJob = bookImportRepository
+                .findById(jobId)
+                .filter(job -> job.getStatus() == Status.PENDING);
+
+            if (pendingJob.isPresent()) {
+                BookImport job = pendingJob.get();
+                job.start(Duration.ofSeconds(leaseSeconds));
+                // Saving claims the job, the version check stops other instances from running it
+                job = bookImportRepository.save(job);
+                saveResult(runImport(job));
+            }
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Another instance claimed the job, or restarted it after its lease expired
+        } finally {
+            queuedJobs.remove(jobId);
+        }
+    }
+
+    private void saveResult(BookImport job) {
+        try {
+            notifyCompletion(bookImportRepository.save(job));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            logger.warn("Couldn't save the result of book import {}", job.getId(), e);
+            failRunningJob(job.getId());
+        }
+    }
+
+    private void failRunningJob(Long jobId) {
+        try {
+            bookImportRepository
+                .findById(jobId)
+                .filter(job -> job.getStatus() == Status.RUNNING)
+                .ifPresent(job -> {
+                    job.fail(SAVE_ERROR);
+                    notifyCompletion(bookImportRepository.save(job));
+                });
+        } catch (RuntimeException e) {
+            // The job stays running until its lease expires and the sweep restarts it
+            logger.warn("Couldn't fail book import {}", jobId, e);
+        }
+    }
+
+    private BookImport runImport(BookImport job) {
+        try {
+            Optional<Book> databaseBook = bookRepository.findByIsbn(job.getIsbn());
+
+            if (databaseBook.isPresent()) {
+                job.complete(databaseBook.get().getId());
+                return job;
+            }
+
+            BookDto bookDto = openLibraryService.bookInfo(job.getIsbn());
+
+            if (bookDto == null) {
+                job.notFound();
+                return job;
+            }
+
+            Book book = Book.fromDto(bookDto);
+            contributorService.link(book);
+            job.complete(bookRepository.save(book).getId());
+        } catch (RequestException e) {
+            job.fail(REQUEST_ERROR);
+        } catch (IOException | ParseBookException | RuntimeException e) {
+            job.fail(PARSE_ERROR);
+        }
+
+        return job;
+    }
+
+    private void notifyCompletion(BookImport job) {
+        CompletableFuture<BookImport> completion = completions.remove(job.getId());
+
+        if (completion != null) {
+            completion.complete(job);
+        }
+    }
+}
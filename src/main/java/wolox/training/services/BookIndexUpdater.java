@@ -0,0 +1,69 @@
+package wolox.training.services;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import wolox.training.events.EntityChangeEvent;
+import wolox.training.events.EntityChangeEvent.Kind;
+import wolox.training.models.Book;
+import wolox.training.repositories.BookRepository;
+
+/**
+ * Keeps every {@link IncrementalBookIndex} up to date. Books are loaded once the application is
+ * ready, reloaded after each committed change and loaded again on {@link Kind#RESET}, each time
+ * with a single query whose result is handed to all the indexes.
+ */
+@Service
+public class BookIndexUpdater {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private List<IncrementalBookIndex<?, ?>> indexes;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        load(() -> {
+            Iterable<Book> books = bookRepository.findAll();
+            indexes.forEach(index -> index.rebuild(books));
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.getType() != Book.class) {
+            return;
+        }
+
+        if (event.getKind() == Kind.RESET) {
+            rebuild();
+        } else if (event.getKind() == Kind.DELETED) {
+            indexes.forEach(index -> index.delete(event.getIds()));
+        } else {
+            load(() -> {
+                Map<Long, Book> changedBooks = bookRepository.findAllByIdIn(event.getIds())
+                    .stream()
+                    .collect(Collectors.toMap(Book::getId, Function.identity()));
+                indexes.forEach(index -> index.reload(event.getIds(), changedBooks));
+            });
+        }
+    }
+
+    private void load(Runnable loader) {
+        indexes.forEach(IncrementalBookIndex::startLoading);
+
+        try {
+            loader.run();
+        } finally {
+            indexes.forEach(IncrementalBookIndex::finishLoading);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package wolox.training.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import wolox.training.config.BinaryFormatsConfig;
+import wolox.training.events.EntityChangeEvent;
+import wolox.training.events.EntityChangeEvent.Kind;
+import wolox.training.models.Book;
+
+/**
+ * Keeps the encoded bytes of recently read books, one body per representation, so hot reads skip
+ * both Hibernate and Jackson. Entries are tagged with the book version: writes replace them with
+ * an empty entry for the new version, which also stops slower readers from caching older data.
+ */
+@Service
+public class BookResponseCache {
+
+    private static final List<MediaType> REPRESENTATIONS = Arrays.asList(
+        MediaType.APPLICATION_JSON_UTF8, BinaryFormatsConfig.APPLICATION_SMILE,
+        BinaryFormatsConfig.APPLICATION_CBOR);
+
+    private static final long DELETED = Long.MAX_VALUE;
+
+    @Autowired
+    private RequestMappingHandlerAdapter requestMappingHandlerAdapter;
+
+    @Value("${training.books.response-cache.max-entries:10000}")
+    private long maxEntries;
+
+    private final Map<MediaType, ObjectMapper> objectMappers = new LinkedHashMap<>();
+
+    private Cache<Long, Entry> entries;
+
+    private Cache<String, Long> idsByIsbn;
+
+    @PostConstruct
+    public void init() {
+        // Reuse the mappers of the MVC converters so cached bodies match regular responses
+        for (MediaType mediaType : REPRESENTATIONS) {
+            for (HttpMessageConverter<?> converter : requestMappingHandlerAdapter
+                .getMessageConverters()) {
+                if (converter instanceof AbstractJackson2HttpMessageConverter
+                    && converter.canWrite(Book.class, mediaType)) {
+                    objectMappers.putIfAbsent(mediaType,
+                        ((AbstractJackson2HttpMessageConverter) converter).getObjectMapper());
+                }
+            }
+        }
+
+        entries = CacheBuilder.newBuilder().maximumSize(maxEntries).build();
+        idsByIsbn = CacheBuilder.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    public MediaType negotiate(String accept) throws HttpMediaTypeNotAcceptableException {
+        List<MediaType> acceptedTypes = accept == null || accept.trim().isEmpty()
+            ? Arrays.asList(MediaType.ALL)
+            : MediaType.parseMediaTypes(accept);
+
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+
+        for (MediaType acceptedType : acceptedTypes) {
+            for (MediaType representation : objectMappers.keySet()) {
+                if (acceptedType.getQualityValue() > 0
+                    && acceptedType.isCompatibleWith(representation)) {
+                    return representation;
+                }
+            }
+        }
+
+        throw new HttpMediaTypeNotAcceptableException(new ArrayList<>(objectMappers.keySet()));
+    }
+
+    public Optional<byte[]> get(Long id, MediaType mediaType) {
+        Entry entry = entries.getIfPresent(id);
+        return entry == null ? Optional.empty() : Optional.ofNullable(entry.bodies.get(mediaType));
+    }
+
+    public Optional<byte[]> getByIsbn(String isbn, MediaType mediaType) {
+        Long id = idsByIsbn.getIfPresent(isbn);
+        Entry entry = id == null ? null : entries.getIfPresent(id);
+
+        if (entry == null || !isbn.equals(entry.isbn)) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(entry.bodies.get(mediaType));
+    }
+
+    public byte[] put(Book book, MediaType mediaType) throws JsonProcessingException {
+        byte[] body = objectMappers.get(mediaType).writeValueAsBytes(book);
+
+        if (book.getId() != null) {
+            long version = book.getVersion() == null ? 0 : book.getVersion();
+
+            Entry entry = entries.asMap().compute(book.getId(),
+                (id, current) -> current == null || current.version < version
+                    ? new Entry(version) : current);
+
+            // A newer version was written meanwhile, this body is already stale
+            if (entry.version == version) {
+                entry.isbn = book.getIsbn();
+                entry.bodies.put(mediaType, body);
+                idsByIsbn.put(book.getIsbn(), book.getId());
+            }
+        }
+
+        return body;
+    }
+
+    public void evict(Book book) {
+        evict(book.getId(), book.getVersion() == null ? 0 : book.getVersion());
+    }
+
+    public void evict(Long id, long version) {
+        entries.asMap().merge(id, new Entry(version),
+            (current, replacement) -> current.version > version ? current : replacement);
+    }
+
+    public void evictDeleted(Long id) {
+        entries.put(id, new Entry(DELETED));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.getType() != Book.class) {
+            return;
+        }
+
+        if (event.getKind() == Kind.RESET) {
+            clear();
+        } else if (event.getKind() == Kind.DELETED) {
+            event.getIds().forEach(this::evictDeleted);
+        } else {
+            event.getIds().forEach(id -> evict(id, event.getVersion()));
+        }
+    }
+
+    public void clear() {
+        entries.invalidateAll();
+        idsByIsbn.invalidateAll();
+    }
+
+    private static final class Entry {
+
+        private final long version;
+        private final Map<MediaType, byte[]> bodies = new ConcurrentHashMap<>();
+        private volatile String isbn;
+
+        private Entry(long version) {
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package wolox.training.services;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.stereotype.Service;
+import wolox.training.models.Book;
+import wolox.training.models.Contributor;
+import wolox.training.models.Names;
+import wolox.training.models.dtos.SuggestionDto;
+
+/**
+ * Suggests book titles and authors starting with a prefix, ranked by how many books carry them.
+ * Terms live in a radix trie, where chains of single children are merged into one node labelled
+ * with the whole run of characters. Every node caches the top suggestions of its subtree, so a
+ * lookup only walks the prefix. Changes refresh the cached lists along the path of the changed
+ * term, from the leaf up.
+ */
+@Service
+public class BookSuggestIndex extends
+    IncrementalBookIndex<BookSuggestIndex.State, List<BookSuggestIndex.Term>> {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final String TITLE = "title";
+    private static final String AUTHOR = "author";
+
+    private static final SuggestionDto[] NONE = new SuggestionDto[0];
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final Comparator<SuggestionDto> RANKING = Comparator
+        .comparingInt(SuggestionDto::getBooks).reversed()
+        .thenComparing(SuggestionDto::getText);
+
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        Preconditions.checkArgument(limit > 0, "Limit must be positive");
+        String key = Names.normalize(prefix);
+
+        if (key == null || key.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return read(state -> {
+            Node node = state.root;
+            int depth = 0;
+
+            // The prefix may end within the label of the last node
+            while (depth < key.length()) {
+                node = node.child(key.charAt(depth));
+
+                if (node == null || !key.regionMatches(depth, node.label, 0,
+                    Math.min(node.label.length(), key.length() - depth))) {
+                    return Collections.<SuggestionDto>emptyList();
+                }
+
+                depth += node.label.length();
+            }
+
+            SuggestionDto[] top = node.top;
+            return Arrays.asList(Arrays.copyOf(top, Math.min(limit, top.length)));
+        });
+    }
+
+    @Override
+    protected State newState() {
+        return new State();
+    }
+
+    @Override
+    protected List<Term> add(State state, Book book) {
+        List<Term> terms = new ArrayList<>();
+
+        if (book.getTitle() != null && !book.getTitle().trim().isEmpty()) {
+            terms.add(new Term(TITLE, Names.normalize(book.getTitle())));
+            change(state, terms.get(0), book.getTitle().trim(), 1);
+        }
+
+        Contributor.split(book.getAuthor()).forEach((normalizedName, name) -> {
+            Term term = new Term(AUTHOR, normalizedName);
+            terms.add(term);
+            change(state, term, name, 1);
+        });
+
+        return terms;
+    }
+
+    @Override
+    protected void remove(State state, List<Term> terms) {
+        terms.forEach(term -> change(state, term, null, -1));
+    }
+
+    private static void change(State state, Term term, String text, int delta) {
+        SuggestionDto current = state.suggestions.get(term);
+        int books = (current == null ? 0 : current.getBooks()) + delta;
+        SuggestionDto suggestion = null;
+
+        if (books > 0) {
+            // The first spelling seen stays, like the contributor names
+            suggestion = new SuggestionDto(current == null ? text : current.getText(), term.type,
+                books);
+            state.suggestions.put(term, suggestion);
+        } else {
+            state.suggestions.remove(term);
+        }
+
+        List<Node> path = new ArrayList<>();
+        Node node = state.root;
+        path.add(node);
+        int depth = 0;
+
+        while (depth < term.key.length()) {
+            Node child = node.child(term.key.charAt(depth));
+            int common = child == null ? 0 : commonPrefix(child.label, term.key, depth);
+
+            if (child == null || common < child.label.length()) {
+                if (suggestion == null) {
+                    return;
+                }
+
+                child = child == null ? node.addChild(term.key.substring(depth))
+                    : node.split(child, common);
+            }
+
+            path.add(child);
+            node = child;
+            depth += child.label.length();
+        }
+
+        if (TITLE.equals(term.type)) {
+            node.title = suggestion;
+        } else {
+            node.author = suggestion;
+        }
+
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node changed = path.get(i);
+
+            if (changed.isEmpty()) {
+                path.get(i - 1).removeChild(changed);
+            } else if (!changed.hasTerms() && changed.children.length == 1) {
+                // Merged into its only child, so no node is left with a single child and no term
+                Node child = changed.children[0];
+                child.label = changed.label + child.label;
+                path.get(i - 1).replaceChild(child);
+            } else {
+                changed.refreshTop();
+            }
+        }
+
+        state.root.refreshTop();
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int length = Math.min(label.length(), key.length() - offset);
+        int common = 0;
+
+        while (common < length && label.charAt(common) == key.charAt(offset + common)) {
+            common++;
+        }
+
+        return common;
+    }
+
+    static final class State {
+
+        private final Node root = new Node("");
+
+        private final Map<Term, SuggestionDto> suggestions = new HashMap<>();
+    }
+
+    static final class Term {
+
+        private final String type;
+        private final String key;
+
+        private Term(String type, String key) {
+            this.type = type;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Term && type.equals(((Term) obj).type)
+                && key.equals(((Term) obj).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + key.hashCode();
+        }
+    }
+
+    /**
+     * Children are kept in an array sorted by the first character of their labels, which is
+     * unique among siblings.
+     */
+    private static final class Node {
+
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private SuggestionDto title;
+        private SuggestionDto author;
+        private SuggestionDto[] top = NONE;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private Node child(char first) {
+            int index = indexOf(first);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node addChild(String childLabel) {
+            int insertion = -indexOf(childLabel.charAt(0)) - 1;
+            Node child = new Node(childLabel);
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, insertion);
+            newChildren[insertion] = child;
+            System.arraycopy(children, insertion, newChildren, insertion + 1,
+                children.length - insertion);
+            children = newChildren;
+            return child;
+        }
+
+        // Puts a node labelled with the first characters of the child between both
+        private Node split(Node child, int length) {
+            Node branch = new Node(child.label.substring(0, length));
+            replaceChild(branch);
+            child.label = child.label.substring(length);
+            branch.children = new Node[]{child};
+            branch.top = child.top;
+            return branch;
+        }
+
+        private void replaceChild(Node child) {
+            children[indexOf(child.label.charAt(0))] = child;
+        }
+
+        private void removeChild(Node child) {
+            int index = indexOf(child.label.charAt(0));
+            Node[] newChildren = children.length == 1 ? NO_CHILDREN
+                : new Node[children.length - 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index + 1, newChildren, index,
+                children.length - index - 1);
+            children = newChildren;
+        }
+
+        private int indexOf(char first) {
+            int low = 0;
+            int high = children.length - 1;
+
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char label = children[middle].label.charAt(0);
+
+                if (label < first) {
+                    low = middle + 1;
+                } else if (label > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+
+            return -(low + 1);
+        }
+
+        private boolean hasTerms() {
+            return title != null || author != null;
+        }
+
+        private boolean isEmpty() {
+            return !hasTerms() && children.length == 0;
+        }
+
+        // The subtree top is within the own terms and the tops of the children
+        private void refreshTop() {
+            List<SuggestionDto> candidates = new ArrayList<>();
+
+            if (title != null) {
+                candidates.add(title);
+            }
+
+            if (author != null) {
+                candidates.add(author);
+            }
+
+            for (Node child : children) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+
+            top = candidates.stream()
+                .sorted(RANKING)
+                .limit(MAX_SUGGESTIONS)
+                .toArray(SuggestionDto[]::new);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package wolox.training.services;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import wolox.training.models.Author;
+import wolox.training.models.Book;
+import wolox.training.models.Contributor;
+import wolox.training.models.Publisher;
+import wolox.training.repositories.AuthorRepository;
+import wolox.training.repositories.PublisherRepository;
+
+/**
+ * Keeps the author and publisher links of a book in line with its author and publisher strings,
+ * creating the names seen for the first time. Books saved before the links existed were linked by
+ * the V5 migration, which the author and publisher filters rely on.
+ */
+@Service
+public class ContributorService {
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private PublisherRepository publisherRepository;
+
+    public void link(Book book) {
+        book.setAuthors(resolve(book.getAuthor(), authorRepository::findByNormalizedNameIn,
+            Author::new, authorRepository::save));
+        book.setPublishers(resolve(book.getPublisher(),
+            publisherRepository::findByNormalizedNameIn, Publisher::new,
+            publisherRepository::save));
+    }
+
+    private <T extends Contributor> Set<T> resolve(String names,
+        Function<Collection<String>, List<T>> finder, Function<String, T> factory,
+        Function<T, T> saver) {
+        Map<String, String> namesByNormalizedName = Contributor.split(names);
+        Map<String, T> existing = finder.apply(namesByNormalizedName.keySet()).stream()
+            .collect(Collectors.toMap(Contributor::getNormalizedName, Function.identity()));
+
+        Set<T> contributors = new LinkedHashSet<>();
+
+        namesByNormalizedName.forEach((normalizedName, name) -> {
+            T contributor = existing.get(normalizedName);
+
+            if (contributor == null) {
+                try {
+                    contributor = saver.apply(factory.apply(name));
+                } catch (DataIntegrityViolationException e) {
+                    // Another request created the same name first
+                    contributor = finder.apply(Collections.singleton(normalizedName)).stream()
+                        .findFirst()
+                        .orElseThrow(() -> e);
+                }
+            }
+
+            contributors.add(contributor);
+        });
+
+        return contributors;
+    }
+}
@@ -0,0 +1,164 @@
+package wolox.training.services;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import wolox.training.events.EntityChangeEvent;
+import wolox.training.models.Book;
+
+/**
+ * Base of the in-memory indexes built over every book. {@link BookIndexUpdater} loads the books
+ * once for all of them and hands them over after each {@link EntityChangeEvent}. Subclasses keep
+ * their data in a state object and only add and remove single books from it, either while holding
+ * the write lock or on a new state built aside during a rebuild. Queries go through
+ * {@link #read(Function)}.
+ *
+ * @param <S> the data a subclass keeps over all the books
+ * @param <T> what a subclass keeps per book to remove it later
+ */
+abstract class IncrementalBookIndex<S, T> {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Contents<S, T> contents = new Contents<>(newState());
+
+    // Changes applied while loads were in flight, so neither a reload read before a delete can
+    // bring a book back nor a rebuild read before a change can undo it. Ids are never reused, and
+    // both are emptied once no load is in flight.
+    private final Set<Long> tombstones = new HashSet<>();
+    private final Map<Long, Book> reloaded = new HashMap<>();
+
+    private int loadsInFlight;
+
+    protected abstract S newState();
+
+    protected abstract T add(S state, Book book);
+
+    protected abstract void remove(S state, T indexed);
+
+    protected <R> R read(Function<S, R> reader) {
+        lock.readLock().lock();
+
+        try {
+            return reader.apply(contents.state);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void startLoading() {
+        write(() -> loadsInFlight++);
+    }
+
+    void finishLoading() {
+        write(() -> {
+            if (--loadsInFlight == 0) {
+                tombstones.clear();
+                reloaded.clear();
+            }
+        });
+    }
+
+    /**
+     * Builds a new state from every book without holding the lock, queries keep reading the
+     * current one until it is swapped in.
+     */
+    void rebuild(Iterable<Book> books) {
+        Contents<S, T> rebuilt = new Contents<>(newState());
+        books.forEach(book -> index(rebuilt, book));
+
+        write(() -> {
+            reloaded.values().forEach(book -> index(rebuilt, book));
+            tombstones.forEach(id -> unindex(rebuilt, id));
+            contents = rebuilt;
+        });
+    }
+
+    void reload(Collection<Long> ids, Map<Long, Book> changedBooks) {
+        write(() -> ids.forEach(id -> {
+            Book book = changedBooks.get(id);
+
+            if (book == null) {
+                unindex(contents, id);
+            } else if (!tombstones.contains(id)) {
+                index(contents, book);
+                reloaded.merge(id, book, IncrementalBookIndex::newest);
+            }
+        }));
+    }
+
+    void delete(Collection<Long> ids) {
+        write(() -> ids.forEach(id -> {
+            unindex(contents, id);
+
+            if (loadsInFlight > 0) {
+                tombstones.add(id);
+            }
+        }));
+    }
+
+    private void write(Runnable writer) {
+        lock.writeLock().lock();
+
+        try {
+            writer.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Contents<S, T> target, Book book) {
+        long version = version(book);
+        Indexed<T> current = target.books.get(book.getId());
+
+        // Reloads of the same book may finish out of order, keep the newest one
+        if (current != null && current.version > version) {
+            return;
+        }
+
+        unindex(target, book.getId());
+        target.books.put(book.getId(), new Indexed<>(version, add(target.state, book)));
+    }
+
+    private void unindex(Contents<S, T> target, Long id) {
+        Indexed<T> indexed = target.books.remove(id);
+
+        if (indexed != null) {
+            remove(target.state, indexed.value);
+        }
+    }
+
+    private static Book newest(Book first, Book second) {
+        return version(first) >= version(second) ? first : second;
+    }
+
+    private static long version(Book book) {
+        return book.getVersion() == null ? 0 : book.getVersion();
+    }
+
+    private static final class Contents<S, T> {
+
+        private final S state;
+        private final Map<Long, Indexed<T>> books = new HashMap<>();
+
+        private Contents(S state) {
+            this.state = state;
+        }
+    }
+
+    private static final class Indexed<T> {
+
+        private final long version;
+        private final T value;
+
+        private Indexed(long version, T value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package wolox.training.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import wolox.training.models.dtos.CountedPage;
+
+/**
+ * Decides how the total of a paged listing is counted. {@code exact} runs the count query of
+ * every page. {@code cached} reuses the count of the same listing and filters for a while, and
+ * {@code estimated} also answers unfiltered listings from the planner statistics. The other two
+ * strategies read one row past the page instead, so the last page is always counted exactly.
+ */
+@Service
+public class PageCounter {
+
+    public enum Strategy {
+        EXACT, CACHED, ESTIMATED
+    }
+
+    @Value("${training.pagination.count:exact}")
+    private String strategyName;
+
+    @Value("${training.pagination.count-cache-seconds:30}")
+    private long cacheSeconds;
+
+    @Value("${training.pagination.count-cache-max-entries:10000}")
+    private long maxEntries;
+
+    private Strategy strategy;
+
+    private Cache<List<Object>, Long> counts;
+
+    @PostConstruct
+    public void init() {
+        strategy = Strategy.valueOf(strategyName.trim().toUpperCase(Locale.ROOT));
+        counts = CacheBuilder.newBuilder()
+            .expireAfterWrite(cacheSeconds, TimeUnit.SECONDS)
+            .maximumSize(maxEntries)
+            .build();
+    }
+
+    /**
+     * @param key the listing name followed by its filter values, all of them null when the
+     * listing covers the whole table
+     */
+    public <T> CountedPage<T> find(Pageable pageable, List<Object> key,
+        Function<Pageable, Page<T>> pages, Function<Pageable, Slice<T>> slices,
+        LongSupplier counter, Supplier<OptionalLong> estimator) {
+        if (strategy == Strategy.EXACT) {
+            return CountedPage.exact(pages.apply(pageable));
+        }
+
+        Slice<T> slice = slices.apply(pageable);
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        long seen = offset + slice.getNumberOfElements();
+
+        // Unless it is past the end, the last page already tells the total
+        if (!slice.hasNext() && (slice.hasContent() || offset == 0)) {
+            return new CountedPage<>(slice.getContent(), pageable, seen, CountedPage.EXACT);
+        }
+
+        OptionalLong estimate = strategy == Strategy.ESTIMATED
+            && key.stream().skip(1).allMatch(Objects::isNull)
+            ? estimator.get() : OptionalLong.empty();
+        Long total = estimate.isPresent() ? Long.valueOf(estimate.getAsLong())
+            : counts.getIfPresent(key);
+
+        if (total == null) {
+            total = counter.getAsLong();
+            counts.put(key, total);
+            return new CountedPage<>(slice.getContent(), pageable, total, CountedPage.EXACT);
+        }
+
+        // Counts taken before the latest inserts must still cover the rows already seen
+        if (slice.hasContent()) {
+            total = Math.max(total, slice.hasNext() ? seen + 1 : seen);
+        }
+
+        return new CountedPage<>(slice.getContent(), pageable, total, CountedPage.APPROXIMATE);
+    }
+}
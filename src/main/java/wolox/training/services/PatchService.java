@@ -0,0 +1,81 @@
+package wolox.training.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import wolox.training.exceptions.InvalidFieldsException;
+
+/**
+ * Turns a PATCH body into typed column values. Every value goes through the entity setter and the
+ * bean validation constraints of its field, so partial updates follow the same rules as full ones.
+ */
+@Service
+public class PatchService {
+
+    private static final String VERSION = "version";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    public Long version(Map<String, Object> body) {
+        Object version = body.get(VERSION);
+
+        if (!(version instanceof Number)) {
+            throw new InvalidFieldsException("The current version is required");
+        }
+
+        return ((Number) version).longValue();
+    }
+
+    public <T> Map<String, Object> changes(Class<T> type, Set<String> patchableFields,
+        Map<String, Object> body) {
+        T target = BeanUtils.instantiateClass(type);
+        BeanWrapper wrapper = new BeanWrapperImpl(target);
+        Map<String, Object> changes = new LinkedHashMap<>();
+
+        body.forEach((field, value) -> {
+            if (VERSION.equals(field)) {
+                return;
+            }
+
+            if (!patchableFields.contains(field)) {
+                throw new InvalidFieldsException("Field " + field + " can't be updated, "
+                    + "allowed fields are " + patchableFields);
+            }
+
+            try {
+                wrapper.setPropertyValue(field,
+                    objectMapper.convertValue(value, wrapper.getPropertyType(field)));
+            } catch (IllegalArgumentException | BeansException e) {
+                throw new InvalidFieldsException("Invalid value for field " + field);
+            }
+
+            Set<ConstraintViolation<T>> violations = validator.validateProperty(target, field);
+
+            if (!violations.isEmpty()) {
+                throw new ConstraintViolationException(violations);
+            }
+
+            changes.put(field, wrapper.getPropertyValue(field));
+        });
+
+        if (changes.isEmpty()) {
+            throw new InvalidFieldsException("No fields to update");
+        }
+
+        return changes;
+    }
+}
@@ -0,0 +1,85 @@
+package wolox.training.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Optional;
+import java.util.function.Function;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import wolox.training.events.EntityChangeEvent;
+import wolox.training.events.EntityChangeEvent.Kind;
+import wolox.training.models.Names;
+import wolox.training.models.User;
+import wolox.training.repositories.UserRepository;
+
+/**
+ * Resolves authenticated principals to users, remembering the id of each username so repeated
+ * requests of a client load it by primary key. Renamed and deleted users are dropped after commit,
+ * and a cached id is only trusted while the loaded user still carries that username.
+ */
+@Service
+public class UserLookupService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${training.users.id-cache.max-entries:10000}")
+    private long maxEntries;
+
+    private Cache<String, Long> ids;
+
+    @PostConstruct
+    public void init() {
+        ids = CacheBuilder.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    public Optional<User> findByUsername(String username) {
+        return find(username, userRepository::findById, userRepository::findFirstByUsername);
+    }
+
+    /**
+     * Same lookup, also fetching the books of the user for its JSON.
+     */
+    public Optional<User> findWithBooksByUsername(String username) {
+        return find(username, userRepository::findWithBooksById,
+            userRepository::findFirstWithBooksByUsername);
+    }
+
+    private Optional<User> find(String username, Function<Long, Optional<User>> byId,
+        Function<String, Optional<User>> byUsername) {
+        String key = Names.normalize(username);
+        Long id = key == null ? null : ids.getIfPresent(key);
+
+        if (id != null) {
+            Optional<User> user = byId.apply(id);
+
+            // The rename of another node may still be on its way
+            if (user.isPresent() && key.equals(user.get().getNormalizedUsername())) {
+                return user;
+            }
+
+            ids.invalidate(key);
+        }
+
+        Optional<User> user = byUsername.apply(username);
+        user.ifPresent(found -> ids.put(found.getNormalizedUsername(), found.getId()));
+        return user;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.getType() != User.class) {
+            return;
+        }
+
+        if (event.getKind() == Kind.RESET) {
+            ids.invalidateAll();
+        } else {
+            ids.asMap().values().removeAll(event.getIds());
+        }
+    }
+}
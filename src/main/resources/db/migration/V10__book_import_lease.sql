@@ -0,0 +1,3 @@
+ALTER TABLE book_import ADD COLUMN IF NOT EXISTS claimed_until TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS book_import_status_idx ON book_import (status, claimed_until);
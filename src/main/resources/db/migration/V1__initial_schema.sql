@@ -0,0 +1,29 @@
+CREATE SEQUENCE hibernate_sequence START 1 INCREMENT 1;
+
+CREATE TABLE book (
+    id        BIGINT       NOT NULL,
+    author    VARCHAR(255) NOT NULL,
+    genre     VARCHAR(255),
+    image     VARCHAR(255) NOT NULL,
+    isbn      VARCHAR(255) NOT NULL,
+    pages     INTEGER      NOT NULL,
+    publisher VARCHAR(255) NOT NULL,
+    subtitle  VARCHAR(255) NOT NULL,
+    title     VARCHAR(255) NOT NULL,
+    year      VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE users (
+    id         BIGINT       NOT NULL,
+    birth_date DATE         NOT NULL,
+    name       VARCHAR(255) NOT NULL,
+    password   VARCHAR(255) NOT NULL,
+    username   VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE book_user (
+    user_id BIGINT NOT NULL REFERENCES users (id),
+    book_id BIGINT NOT NULL REFERENCES book (id)
+);
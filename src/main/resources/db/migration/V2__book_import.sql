@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS book_import (
+    id         BIGINT       NOT NULL,
+    book_id    BIGINT,
+    created_at TIMESTAMP    NOT NULL,
+    error      VARCHAR(255),
+    isbn       VARCHAR(255) NOT NULL UNIQUE,
+    status     VARCHAR(255) NOT NULL,
+    updated_at TIMESTAMP    NOT NULL,
+    version    BIGINT,
+    PRIMARY KEY (id)
+);
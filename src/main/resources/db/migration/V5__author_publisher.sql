@@ -0,0 +1,66 @@
+CREATE TABLE IF NOT EXISTS author (
+    id              BIGINT       NOT NULL,
+    name            VARCHAR(255) NOT NULL,
+    normalized_name VARCHAR(255) NOT NULL UNIQUE,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS publisher (
+    id              BIGINT       NOT NULL,
+    name            VARCHAR(255) NOT NULL,
+    normalized_name VARCHAR(255) NOT NULL UNIQUE,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS book_author (
+    book_id   BIGINT NOT NULL REFERENCES book (id),
+    author_id BIGINT NOT NULL REFERENCES author (id),
+    PRIMARY KEY (book_id, author_id)
+);
+
+CREATE INDEX IF NOT EXISTS book_author_author_id_idx ON book_author (author_id);
+
+CREATE TABLE IF NOT EXISTS book_publisher (
+    book_id      BIGINT NOT NULL REFERENCES book (id),
+    publisher_id BIGINT NOT NULL REFERENCES publisher (id),
+    PRIMARY KEY (book_id, publisher_id)
+);
+
+CREATE INDEX IF NOT EXISTS book_publisher_publisher_id_idx ON book_publisher (publisher_id);
+
+-- Split the names joined with ' - ' by Book.fromDto, normalized as Contributor.normalize does
+INSERT INTO author (id, name, normalized_name)
+SELECT nextval('hibernate_sequence'), name, normalized_name
+FROM (
+    SELECT DISTINCT ON (lower(trim(part)))
+        trim(part) AS name, lower(trim(part)) AS normalized_name
+    FROM book
+    CROSS JOIN LATERAL regexp_split_to_table(book.author, ' - ') AS part
+    WHERE trim(part) <> ''
+) AS names
+ON CONFLICT (normalized_name) DO NOTHING;
+
+INSERT INTO book_author (book_id, author_id)
+SELECT DISTINCT book.id, author.id
+FROM book
+CROSS JOIN LATERAL regexp_split_to_table(book.author, ' - ') AS part
+JOIN author ON author.normalized_name = lower(trim(part))
+ON CONFLICT DO NOTHING;
+
+INSERT INTO publisher (id, name, normalized_name)
+SELECT nextval('hibernate_sequence'), name, normalized_name
+FROM (
+    SELECT DISTINCT ON (lower(trim(part)))
+        trim(part) AS name, lower(trim(part)) AS normalized_name
+    FROM book
+    CROSS JOIN LATERAL regexp_split_to_table(book.publisher, ' - ') AS part
+    WHERE trim(part) <> ''
+) AS names
+ON CONFLICT (normalized_name) DO NOTHING;
+
+INSERT INTO book_publisher (book_id, publisher_id)
+SELECT DISTINCT book.id, publisher.id
+FROM book
+CROSS JOIN LATERAL regexp_split_to_table(book.publisher, ' - ') AS part
+JOIN publisher ON publisher.normalized_name = lower(trim(part))
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,5 @@
+ALTER TABLE book ALTER COLUMN year TYPE INTEGER USING year::INTEGER;
+
+CREATE INDEX IF NOT EXISTS book_year_idx ON book (year);
+
+CREATE INDEX IF NOT EXISTS book_pages_idx ON book (pages);
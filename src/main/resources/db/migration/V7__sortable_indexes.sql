@@ -0,0 +1,12 @@
+-- Sortable fields get a (field, id) index, which also serves the range filters on year and pages
+DROP INDEX IF EXISTS book_year_idx;
+DROP INDEX IF EXISTS book_pages_idx;
+
+CREATE INDEX IF NOT EXISTS book_isbn_id_idx ON book (isbn, id);
+CREATE INDEX IF NOT EXISTS book_title_id_idx ON book (title, id);
+CREATE INDEX IF NOT EXISTS book_year_id_idx ON book (year, id);
+CREATE INDEX IF NOT EXISTS book_pages_id_idx ON book (pages, id);
+
+CREATE INDEX IF NOT EXISTS users_username_id_idx ON users (username, id);
+CREATE INDEX IF NOT EXISTS users_name_id_idx ON users (name, id);
+CREATE INDEX IF NOT EXISTS users_birth_date_id_idx ON users (birth_date, id);
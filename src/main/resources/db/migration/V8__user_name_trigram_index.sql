@@ -0,0 +1,13 @@
+-- Substring searches on the user name (LIKE '%...%') can use a trigram index, birth date ranges
+-- already use users_birth_date_id_idx. Creating the pg_trgm extension needs a privileged role,
+-- so it is a DBA prerequisite (see README). Without it the index is skipped and those searches
+-- scan the table.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm') THEN
+        CREATE INDEX IF NOT EXISTS users_name_trgm_idx ON users USING gin (name gin_trgm_ops);
+    ELSE
+        RAISE WARNING 'pg_trgm is not installed, users_name_trgm_idx was not created';
+    END IF;
+END
+$$;
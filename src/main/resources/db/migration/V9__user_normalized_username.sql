@@ -0,0 +1,31 @@
+-- Usernames become unique ignoring case and surrounding spaces. Users whose usernames only differ
+-- in those can't be told apart at login anymore, so the migration stops until they are renamed.
+-- They are listed by:
+--   SELECT id, username FROM users
+--   WHERE lower(trim(username)) IN (
+--       SELECT lower(trim(username)) FROM users GROUP BY 1 HAVING count(*) > 1)
+--   ORDER BY lower(trim(username)), id;
+DO $$
+DECLARE
+    duplicates TEXT;
+BEGIN
+    SELECT string_agg(normalized_username, ', ' ORDER BY normalized_username) INTO duplicates
+    FROM (SELECT lower(trim(username)) AS normalized_username FROM users
+        GROUP BY 1 HAVING count(*) > 1) duplicated;
+
+    IF duplicates IS NOT NULL THEN
+        RAISE EXCEPTION 'Usernames differing only in case or surrounding spaces: %', duplicates
+            USING HINT = 'Rename all but one user of each, see V9__user_normalized_username.sql '
+                || 'for the query listing them';
+    END IF;
+END
+$$;
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS normalized_username VARCHAR(255);
+
+-- Normalized as Names.normalize does
+UPDATE users SET normalized_username = lower(trim(username));
+
+ALTER TABLE users ALTER COLUMN normalized_username SET NOT NULL;
+
+CREATE UNIQUE INDEX IF NOT EXISTS users_normalized_username_idx ON users (normalized_username);
@@ -0,0 +1,37 @@
+package wolox.training.authentication;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+public class BCryptWorkFactorTest {
+
+    @Test
+    public void givenABCryptHash_whenStrengthOfIsCalled_thenReturnItsCost() {
+        String hash = BCrypt.hashpw("password", BCrypt.gensalt(5));
+
+        Assertions.assertThat(BCryptWorkFactor.strengthOf(hash)).isEqualTo(5);
+    }
+
+    @Test
+    public void givenAnInvalidHash_whenStrengthOfIsCalled_thenReturnNegative() {
+        Assertions.assertThat(BCryptWorkFactor.strengthOf("plain-text")).isEqualTo(-1);
+        Assertions.assertThat(BCryptWorkFactor.strengthOf(null)).isEqualTo(-1);
+    }
+
+    @Test
+    public void givenAnUnreachableTarget_whenCalibrateIsCalled_thenStopAtMaxStrength() {
+        Assertions.assertThat(BCryptWorkFactor.calibrate(Long.MAX_VALUE / 1_000_000, 4, 6))
+            .isEqualTo(6);
+    }
+
+    @Test
+    public void givenAZeroTarget_whenCalibrateIsCalled_thenKeepMinStrength() {
+        Assertions.assertThat(BCryptWorkFactor.calibrate(0, 4, 6)).isEqualTo(4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenInvalidBounds_whenCalibrateIsCalled_thenThrowsException() {
+        BCryptWorkFactor.calibrate(100, 8, 4);
+    }
+}
@@ -0,0 +1,148 @@
+package wolox.training.authentication;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.base.Ticker;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.events.EntityChangeEvent;
+import wolox.training.exceptions.TooManyFailedLoginsException;
+import wolox.training.models.User;
+import wolox.training.repositories.UserRepository;
+
+public class LoginThrottleTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private UserRepository userRepository;
+    private LoginThrottle loginThrottle;
+
+    @Before
+    public void setup() {
+        userRepository = mock(UserRepository.class);
+        loginThrottle = new LoginThrottle();
+        ReflectionTestUtils.setField(loginThrottle, "userRepository", userRepository);
+        ReflectionTestUtils.setField(loginThrottle, "usernameBurst", 3);
+        ReflectionTestUtils.setField(loginThrottle, "addressBurst", 5);
+        ReflectionTestUtils.setField(loginThrottle, "accountBurst", 6);
+        ReflectionTestUtils.setField(loginThrottle, "accountBackoffMillis", 1000L);
+        ReflectionTestUtils.setField(loginThrottle, "accountMaxBackoffMillis", 1500L);
+        ReflectionTestUtils.setField(loginThrottle, "refillPerMinute", 1.0);
+        ReflectionTestUtils.setField(loginThrottle, "maxEntries", 100L);
+        ReflectionTestUtils.setField(loginThrottle, "maxUnknownUsernames", 100L);
+        ReflectionTestUtils.setField(loginThrottle, "unknownUsernamesTtlSeconds", 60L);
+        ReflectionTestUtils.setField(loginThrottle, "ticker", new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+        loginThrottle.init();
+    }
+
+    @Test
+    public void givenTheBurstOfFailures_whenCheckAllowedIsCalled_thenRejectTheUsername() {
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.checkAllowed("username", "10.0.0.1");
+            loginThrottle.recordFailure(" USERNAME", "10.0.0.1");
+        }
+
+        Assertions.assertThatThrownBy(() -> loginThrottle.checkAllowed("username", "10.0.0.1"))
+            .isInstanceOf(TooManyFailedLoginsException.class);
+        loginThrottle.checkAllowed("other", "10.0.0.1");
+    }
+
+    @Test
+    public void givenFailuresOnAUsernameFromOneAddress_whenItsOwnerLogsIn_thenAllowIt() {
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.recordFailure("username", "10.0.0.1");
+        }
+
+        loginThrottle.checkAllowed("username", "10.0.0.2");
+    }
+
+    @Test
+    public void givenFailuresOnManyUsernames_whenCheckAllowedIsCalled_thenRejectTheAddress() {
+        for (int i = 0; i < 5; i++) {
+            loginThrottle.recordFailure("username" + i, "10.0.0.1");
+        }
+
+        Assertions.assertThatThrownBy(() -> loginThrottle.checkAllowed("other", "10.0.0.1"))
+            .isInstanceOf(TooManyFailedLoginsException.class);
+        loginThrottle.checkAllowed("other", "10.0.0.2");
+    }
+
+    @Test
+    public void givenFailuresOnAUsernameFromManyAddresses_whenItsBurstRunsOut_thenBackOff() {
+        for (int i = 0; i < 7; i++) {
+            loginThrottle.checkAllowed("username", "10.0.0." + i);
+            loginThrottle.recordFailure("username", "10.0.0." + i);
+        }
+
+        Assertions.assertThatThrownBy(() -> loginThrottle.checkAllowed("username", "10.0.1.1"))
+            .isInstanceOf(TooManyFailedLoginsException.class);
+        loginThrottle.checkAllowed("other", "10.0.1.1");
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        loginThrottle.checkAllowed("username", "10.0.1.1");
+        loginThrottle.recordFailure("username", "10.0.1.1");
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        Assertions.assertThatThrownBy(() -> loginThrottle.checkAllowed("username", "10.0.1.2"))
+            .isInstanceOf(TooManyFailedLoginsException.class);
+
+        // The delay doubled, up to its maximum
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        loginThrottle.checkAllowed("username", "10.0.1.2");
+    }
+
+    @Test
+    public void givenARejectedUsername_whenTokensRefill_thenAllowItAgain() {
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.recordFailure("username", null);
+        }
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+
+        loginThrottle.checkAllowed("username", null);
+    }
+
+    @Test
+    public void givenAnUnknownUsername_whenAUserTakesIt_thenForgetIt() {
+        loginThrottle.recordUnknown("Username");
+        when(userRepository.findNormalizedUsernamesByIdIn(Collections.singletonList(1L)))
+            .thenReturn(Collections.singletonList("username"));
+
+        Assertions.assertThat(loginThrottle.isUnknown("username")).isTrue();
+
+        loginThrottle.onEntityChange(EntityChangeEvent.updated(User.class, 1L, 0L));
+
+        Assertions.assertThat(loginThrottle.isUnknown("username")).isFalse();
+    }
+
+    @Test
+    public void givenUnknownUsernames_whenAnotherUserIsSaved_thenKeepThem() {
+        loginThrottle.recordUnknown("username");
+        when(userRepository.findNormalizedUsernamesByIdIn(Collections.singletonList(1L)))
+            .thenReturn(Collections.singletonList("other"));
+
+        loginThrottle.onEntityChange(EntityChangeEvent.updated(User.class, 1L, 0L));
+
+        Assertions.assertThat(loginThrottle.isUnknown("username")).isTrue();
+    }
+
+    @Test
+    public void givenAnUnknownUsername_whenAUserIsDeleted_thenKeepIt() {
+        loginThrottle.recordUnknown("username");
+        loginThrottle.onEntityChange(
+            EntityChangeEvent.deleted(User.class, Collections.singletonList(1L)));
+
+        Assertions.assertThat(loginThrottle.isUnknown("username")).isTrue();
+    }
+}
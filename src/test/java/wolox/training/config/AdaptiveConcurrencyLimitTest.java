@@ -0,0 +1,95 @@
+package wolox.training.config;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimitTest {
+
+    private static final long MILLI = 1_000_000;
+
+    @Test
+    public void givenAFullLimit_whenTryAcquireIsCalled_thenRejectAndCountIt() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 2.0, 0.5, 10);
+
+        Assertions.assertThat(limit.tryAcquire()).isTrue();
+        Assertions.assertThat(limit.tryAcquire()).isTrue();
+        Assertions.assertThat(limit.tryAcquire()).isFalse();
+        Assertions.assertThat(limit.getInFlight()).isEqualTo(2);
+        Assertions.assertThat(limit.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenFastRequestsUsingTheLimit_whenReleased_thenGrowIt() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 2.0, 0.5, 10);
+
+        for (int i = 0; i < 20; i++) {
+            limit.tryAcquire();
+            limit.tryAcquire();
+            limit.release(10 * MILLI, false);
+            limit.release(10 * MILLI, false);
+        }
+
+        Assertions.assertThat(limit.getLimit()).isGreaterThan(2);
+        Assertions.assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    public void givenFastRequestsMixedWithUsualOnes_whenReleased_thenKeepTheLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 20, 2.0, 0.5, 10);
+
+        for (int i = 0; i < 500; i++) {
+            limit.tryAcquire();
+            limit.release(i % 5 == 0 ? MILLI / 10 : 10 * MILLI, false);
+        }
+
+        Assertions.assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    public void givenALastingSlowdown_whenReleased_thenBackOffUntilTheBaselineCatchesUp() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 1, 20, 2.0, 0.9, 10);
+
+        for (int i = 0; i < 10; i++) {
+            limit.tryAcquire();
+            limit.release(10 * MILLI, false);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            limit.tryAcquire();
+            limit.release(50 * MILLI, false);
+        }
+
+        Assertions.assertThat(limit.getLimit()).isEqualTo(6);
+
+        for (int i = 0; i < 100; i++) {
+            limit.tryAcquire();
+            limit.release(50 * MILLI, false);
+        }
+
+        Assertions.assertThat(limit.getLimit()).isEqualTo(6);
+    }
+
+    @Test
+    public void givenRepeatedFailures_whenReleased_thenBackOffOncePerWindowDownToTheMinLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 2, 10, 2.0, 0.5, 5);
+
+        for (int i = 0; i < 5; i++) {
+            limit.tryAcquire();
+            limit.release(MILLI, i == 0);
+        }
+
+        Assertions.assertThat(limit.getLimit()).isEqualTo(4);
+
+        for (int i = 0; i < 20; i++) {
+            limit.tryAcquire();
+            limit.release(MILLI, true);
+        }
+
+        Assertions.assertThat(limit.getLimit()).isEqualTo(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenAnInitialLimitAboveTheMax_whenCreated_thenThrowsException() {
+        new AdaptiveConcurrencyLimit(20, 1, 10, 2.0, 0.5, 10);
+    }
+}
@@ -0,0 +1,153 @@
+package wolox.training.config;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import wolox.training.config.ConcurrencyLimitFilter.Group;
+
+public class ConcurrencyLimitFilterTest {
+
+    private Map<Group, AdaptiveConcurrencyLimit> limits;
+    private ConcurrencyLimitFilter concurrencyLimitFilter;
+
+    @Before
+    public void setup() {
+        limits = new EnumMap<>(Group.class);
+        for (Group group : Group.values()) {
+            limits.put(group, new AdaptiveConcurrencyLimit(1, 1, 10, 2.0, 0.9, 1));
+        }
+
+        concurrencyLimitFilter = new ConcurrencyLimitFilter(limits, 3);
+    }
+
+    @Test
+    public void givenRequests_whenClassifyIsCalled_thenSplitReadsImportsAndWrites() {
+        Assertions.assertThat(concurrencyLimitFilter
+            .classify(new MockHttpServletRequest("GET", "/api/books/1")))
+            .isEqualTo(Group.READS);
+        Assertions.assertThat(concurrencyLimitFilter
+            .classify(new MockHttpServletRequest("GET", "/api/books/isbn/978-3-16-148410-0")))
+            .isEqualTo(Group.IMPORTS);
+        Assertions.assertThat(concurrencyLimitFilter
+            .classify(new MockHttpServletRequest("PATCH", "/api/books/1")))
+            .isEqualTo(Group.WRITES);
+    }
+
+    @Test
+    public void givenAFullGroup_whenARequestArrives_thenReturnServiceUnavailable()
+        throws IOException, ServletException {
+        limits.get(Group.READS).tryAcquire();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain filterChain = new MockFilterChain();
+
+        concurrencyLimitFilter
+            .doFilter(new MockHttpServletRequest("GET", "/api/books/1"), response, filterChain);
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(503);
+        Assertions.assertThat(response.getHeader("Retry-After")).isEqualTo("3");
+        Assertions.assertThat(filterChain.getRequest()).isNull();
+    }
+
+    @Test
+    public void givenAFullGroup_whenARequestOfAnotherGroupArrives_thenLetItThrough()
+        throws IOException, ServletException {
+        limits.get(Group.READS).tryAcquire();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain filterChain = new MockFilterChain();
+
+        concurrencyLimitFilter
+            .doFilter(new MockHttpServletRequest("POST", "/api/books"), response, filterChain);
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(200);
+        Assertions.assertThat(filterChain.getRequest()).isNotNull();
+        Assertions.assertThat(limits.get(Group.WRITES).getInFlight()).isZero();
+    }
+
+    @Test
+    public void givenAFailedResponse_whenItReachedAHandler_thenOnlyThenBackOff()
+        throws IOException, ServletException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 10, 2.0, 0.5, 1);
+        limits.put(Group.READS, limit);
+
+        concurrencyLimitFilter.doFilter(new MockHttpServletRequest("GET", "/api/books/1"),
+            new MockHttpServletResponse(),
+            (request, response) -> ((HttpServletResponse) response).setStatus(503));
+
+        Assertions.assertThat(limit.getLimit()).isEqualTo(4);
+        Assertions.assertThat(limit.getInFlight()).isZero();
+
+        concurrencyLimitFilter.doFilter(new MockHttpServletRequest("GET", "/api/books/1"),
+            new MockHttpServletResponse(), (request, response) -> {
+                request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, new Object());
+                ((HttpServletResponse) response).setStatus(503);
+            });
+
+        Assertions.assertThat(limit.getLimit()).isEqualTo(2);
+        Assertions.assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    public void givenAnAsyncRequest_whenTheHandlerReturns_thenHoldTheSlotUntilItCompletes()
+        throws IOException, ServletException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 10, 2.0, 0.5, 1);
+        limits.put(Group.READS, limit);
+        MockHttpServletRequest request = asyncRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        concurrencyLimitFilter.doFilter(request, response, this::startAsync);
+
+        Assertions.assertThat(limit.getInFlight()).isEqualTo(1);
+
+        response.setStatus(503);
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+
+        Assertions.assertThat(limit.getInFlight()).isZero();
+        Assertions.assertThat(limit.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenAnAsyncRequest_whenItTimesOutAndCompletes_thenReleaseOnceWithoutSample()
+        throws IOException, ServletException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 10, 2.0, 0.5, 1);
+        limits.put(Group.READS, limit);
+        MockHttpServletRequest request = asyncRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        concurrencyLimitFilter.doFilter(request, response, this::startAsync);
+
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext, request, response));
+        }
+        response.setStatus(503);
+        asyncContext.complete();
+
+        Assertions.assertThat(limit.getInFlight()).isZero();
+        Assertions.assertThat(limit.getLimit()).isEqualTo(4);
+    }
+
+    private static MockHttpServletRequest asyncRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books/imports/1");
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    private void startAsync(ServletRequest request, ServletResponse response) {
+        request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, new Object());
+        request.startAsync(request, response);
+    }
+}
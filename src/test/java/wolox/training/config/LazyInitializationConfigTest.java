@@ -0,0 +1,39 @@
+package wolox.training.config;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.annotation.Scheduled;
+
+public class LazyInitializationConfigTest {
+
+    @Test
+    public void givenApplicationBeans_whenPostProcessed_thenKeepScheduledAndListedBeansEager() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("plain", new RootBeanDefinition(Plain.class));
+        beanFactory.registerBeanDefinition("listed", new RootBeanDefinition(Plain.class));
+        beanFactory.registerBeanDefinition("sweeper", new RootBeanDefinition(Sweeper.class));
+
+        LazyInitializationConfig
+            .lazyInitialization(new MockEnvironment()
+                .withProperty("training.startup.eager-beans", "listed"))
+            .postProcessBeanFactory(beanFactory);
+
+        Assertions.assertThat(beanFactory.getBeanDefinition("plain").isLazyInit()).isTrue();
+        Assertions.assertThat(beanFactory.getBeanDefinition("listed").isLazyInit()).isFalse();
+        Assertions.assertThat(beanFactory.getBeanDefinition("sweeper").isLazyInit()).isFalse();
+    }
+
+    static class Plain {
+
+    }
+
+    static class Sweeper {
+
+        @Scheduled(fixedDelay = 1000)
+        public void sweep() {
+        }
+    }
+}
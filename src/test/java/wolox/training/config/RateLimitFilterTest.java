@@ -0,0 +1,109 @@
+package wolox.training.config;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import javax.servlet.ServletException;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import wolox.training.config.RateLimitFilter.Group;
+
+public class RateLimitFilterTest {
+
+    private RateLimitFilter rateLimitFilter;
+
+    @Before
+    public void setup() {
+        Map<Group, TokenBuckets> buckets = new EnumMap<>(Group.class);
+        for (Group group : Group.values()) {
+            buckets.put(group, new TokenBuckets(1, 2));
+        }
+
+        rateLimitFilter = new RateLimitFilter(buckets);
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void givenRequests_whenClassifyIsCalled_thenSplitSearchesReadsAndWrites() {
+        Assertions.assertThat(rateLimitFilter
+            .classify(new MockHttpServletRequest("GET", "/api/books")))
+            .isEqualTo(Group.SEARCHES);
+        Assertions.assertThat(rateLimitFilter
+            .classify(new MockHttpServletRequest("GET", "/api/users/search")))
+            .isEqualTo(Group.SEARCHES);
+        Assertions.assertThat(rateLimitFilter
+            .classify(new MockHttpServletRequest("GET", "/api/books/1")))
+            .isEqualTo(Group.READS);
+        Assertions.assertThat(rateLimitFilter
+            .classify(new MockHttpServletRequest("POST", "/api/books")))
+            .isEqualTo(Group.WRITES);
+    }
+
+    @Test
+    public void givenARequest_whenItIsAllowed_thenSetTheRateLimitHeaders()
+        throws IOException, ServletException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain filterChain = new MockFilterChain();
+
+        rateLimitFilter.doFilter(request("GET", "/api/books/1"), response, filterChain);
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(200);
+        Assertions.assertThat(response.getHeader("X-RateLimit-Limit")).isEqualTo("2");
+        Assertions.assertThat(response.getHeader("X-RateLimit-Remaining")).isEqualTo("1");
+        Assertions.assertThat(response.getHeader("X-RateLimit-Reset")).isEqualTo("1");
+        Assertions.assertThat(filterChain.getRequest()).isNotNull();
+    }
+
+    @Test
+    public void givenAnEmptyBucket_whenARequestArrives_thenReturnTooManyRequests()
+        throws IOException, ServletException {
+        rateLimitFilter.doFilter(request("GET", "/api/books"), new MockHttpServletResponse(),
+            new MockFilterChain());
+        rateLimitFilter.doFilter(request("GET", "/api/books"), new MockHttpServletResponse(),
+            new MockFilterChain());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain filterChain = new MockFilterChain();
+
+        rateLimitFilter.doFilter(request("GET", "/api/books"), response, filterChain);
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(429);
+        Assertions.assertThat(response.getHeader("X-RateLimit-Remaining")).isEqualTo("0");
+        Assertions.assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+        Assertions.assertThat(filterChain.getRequest()).isNull();
+    }
+
+    @Test
+    public void givenAnAuthenticatedUser_whenTheAddressIsLimited_thenLimitTheUserSeparately()
+        throws IOException, ServletException {
+        rateLimitFilter.doFilter(request("GET", "/api/books"), new MockHttpServletResponse(),
+            new MockFilterChain());
+        rateLimitFilter.doFilter(request("GET", "/api/books"), new MockHttpServletResponse(),
+            new MockFilterChain());
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken("user", null, Collections.emptyList()));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        rateLimitFilter.doFilter(request("GET", "/api/books"), response, new MockFilterChain());
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(200);
+        Assertions.assertThat(response.getHeader("X-RateLimit-Remaining")).isEqualTo("1");
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+}
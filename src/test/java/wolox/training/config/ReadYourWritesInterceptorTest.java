@@ -0,0 +1,106 @@
+package wolox.training.config;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import javax.sql.DataSource;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ReadYourWritesInterceptorTest {
+
+    private Connection primaryConnection;
+    private Connection replicaConnection;
+    private ReplicaRoutingDataSource routingDataSource;
+    private ReadYourWritesInterceptor readYourWritesInterceptor;
+
+    @Before
+    public void setup() throws SQLException {
+        DataSource primary = mock(DataSource.class);
+        DataSource replica = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        replicaConnection = mock(Connection.class);
+
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+
+        routingDataSource = new ReplicaRoutingDataSource(primary,
+            Collections.singletonList(replica));
+        readYourWritesInterceptor = new ReadYourWritesInterceptor(60000);
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReplicaRoutingDataSource.setPrimaryOnly(false);
+    }
+
+    @Test
+    public void givenAWriteRequest_whenItReadsBeforeWriting_thenUsePrimaryForBoth()
+        throws SQLException {
+        MockHttpServletRequest request = request("POST", "10.0.0.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        readYourWritesInterceptor.preHandle(request, response, null);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Connection readConnection = routingDataSource.getConnection();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        Connection writeConnection = routingDataSource.getConnection();
+        readYourWritesInterceptor.afterCompletion(request, response, null, null);
+
+        Assertions.assertThat(readConnection).isSameAs(primaryConnection);
+        Assertions.assertThat(writeConnection).isSameAs(primaryConnection);
+    }
+
+    @Test
+    public void givenAClientThatJustWrote_whenItReads_thenOnlyItsReadsUsePrimary()
+        throws SQLException {
+        MockHttpServletRequest write = request("PUT", "10.0.0.1");
+        readYourWritesInterceptor.preHandle(write, new MockHttpServletResponse(), null);
+        readYourWritesInterceptor.afterCompletion(write, new MockHttpServletResponse(), null, null);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        Assertions.assertThat(readConnection(request("GET", "10.0.0.1")))
+            .isSameAs(primaryConnection);
+        Assertions.assertThat(readConnection(request("GET", "10.0.0.2")))
+            .isSameAs(replicaConnection);
+    }
+
+    @Test
+    public void givenAnAsyncWriteRequest_whenItsThreadIsReleased_thenTheNextRequestUsesReplica()
+        throws SQLException {
+        MockHttpServletRequest write = request("POST", "10.0.0.1");
+        readYourWritesInterceptor.preHandle(write, new MockHttpServletResponse(), null);
+        readYourWritesInterceptor
+            .afterConcurrentHandlingStarted(write, new MockHttpServletResponse(), null);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        Assertions.assertThat(readConnection(request("GET", "10.0.0.2")))
+            .isSameAs(replicaConnection);
+    }
+
+    private Connection readConnection(MockHttpServletRequest request) throws SQLException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        readYourWritesInterceptor.preHandle(request, response, null);
+
+        try {
+            return routingDataSource.getConnection();
+        } finally {
+            readYourWritesInterceptor.afterCompletion(request, response, null, null);
+        }
+    }
+
+    private static MockHttpServletRequest request(String method, String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/books");
+        request.setRemoteAddr(address);
+        return request;
+    }
+}
@@ -0,0 +1,87 @@
+package wolox.training.config;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import javax.sql.DataSource;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource firstReplica;
+    private DataSource secondReplica;
+    private Connection primaryConnection;
+    private Connection firstReplicaConnection;
+    private Connection secondReplicaConnection;
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Before
+    public void setup() throws SQLException {
+        primary = mock(DataSource.class);
+        firstReplica = mock(DataSource.class);
+        secondReplica = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        firstReplicaConnection = mock(Connection.class);
+        secondReplicaConnection = mock(Connection.class);
+
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(firstReplica.getConnection()).thenReturn(firstReplicaConnection);
+        when(secondReplica.getConnection()).thenReturn(secondReplicaConnection);
+
+        routingDataSource = new ReplicaRoutingDataSource(primary,
+            Arrays.asList(firstReplica, secondReplica));
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReplicaRoutingDataSource.setPrimaryOnly(false);
+    }
+
+    @Test
+    public void givenAReadWriteTransaction_whenGetConnectionIsCalled_thenUsePrimary()
+        throws SQLException {
+        Assertions.assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    public void givenReadOnlyTransactions_whenGetConnectionIsCalled_thenAlternateReplicas()
+        throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        Assertions.assertThat(routingDataSource.getConnection()).isSameAs(firstReplicaConnection);
+        Assertions.assertThat(routingDataSource.getConnection()).isSameAs(secondReplicaConnection);
+        Assertions.assertThat(routingDataSource.getConnection()).isSameAs(firstReplicaConnection);
+    }
+
+    @Test
+    public void givenAFailingReplica_whenGetConnectionIsCalled_thenSkipItUntilItIsValidAgain()
+        throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(firstReplica.getConnection()).thenThrow(new SQLException("down"));
+
+        Assertions.assertThat(routingDataSource.getConnection()).isSameAs(secondReplicaConnection);
+        Assertions.assertThat(routingDataSource.getConnection()).isSameAs(secondReplicaConnection);
+
+        when(secondReplica.getConnection()).thenThrow(new SQLException("down"));
+
+        Assertions.assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    public void givenPrimaryOnlyReads_whenGetConnectionIsCalled_thenUsePrimary()
+        throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReplicaRoutingDataSource.setPrimaryOnly(true);
+
+        Assertions.assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+    }
+}
@@ -0,0 +1,48 @@
+package wolox.training.config;
+
+import java.util.concurrent.TimeUnit;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class TokenBucketsTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final TokenBuckets tokenBuckets = new TokenBuckets(1, 3);
+
+    @Test
+    public void givenAFullBucket_whenTakingMoreThanTheBurst_thenDenyTheRest() {
+        Assertions.assertThat(tokenBuckets.take("a", 0).getRemaining()).isEqualTo(2);
+        Assertions.assertThat(tokenBuckets.take("a", 0).getRemaining()).isEqualTo(1);
+        Assertions.assertThat(tokenBuckets.take("a", 0).getRemaining()).isZero();
+
+        TokenBuckets.Result result = tokenBuckets.take("a", 0);
+
+        Assertions.assertThat(result.isAllowed()).isFalse();
+        Assertions.assertThat(result.getRetryAfterNanos()).isEqualTo(SECOND);
+        Assertions.assertThat(result.getResetNanos()).isEqualTo(3 * SECOND);
+    }
+
+    @Test
+    public void givenAnEmptyBucket_whenTimePasses_thenRefillIt() {
+        for (int i = 0; i < 3; i++) {
+            tokenBuckets.take("a", 0);
+        }
+
+        Assertions.assertThat(tokenBuckets.take("a", SECOND).isAllowed()).isTrue();
+        Assertions.assertThat(tokenBuckets.take("a", SECOND).isAllowed()).isFalse();
+        Assertions.assertThat(tokenBuckets.take("b", SECOND).isAllowed()).isTrue();
+    }
+
+    @Test
+    public void givenBuckets_whenEvictIdleIsCalled_thenDropOnlyTheFullOnes() {
+        tokenBuckets.take("a", 0);
+        tokenBuckets.take("b", 0);
+        tokenBuckets.take("b", 0);
+
+        tokenBuckets.evictIdle(SECOND);
+
+        Assertions.assertThat(tokenBuckets.size()).isEqualTo(1);
+        Assertions.assertThat(tokenBuckets.take("b", SECOND).getRemaining()).isEqualTo(1);
+    }
+}
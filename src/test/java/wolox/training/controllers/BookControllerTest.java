@@ -3,23 +3,37 @@ package wolox.training.controllers;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.core.Is.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.assertj.core.api.Assertions;
 import org.junit.Before;
@@ -29,6 +43,7 @@ import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -39,18 +54,31 @@ import org.springframework.data.domain.Sort.Order;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import wolox.training.TestUtils;
 import wolox.training.authentication.UserAndPasswordAuthenticationProvider;
+import wolox.training.config.BinaryFormatsConfig;
 import wolox.training.exceptions.ParseBookException;
 import wolox.training.exceptions.RequestException;
 import wolox.training.models.Book;
+import wolox.training.models.BookImport;
 import wolox.training.models.dtos.BookDto;
+import wolox.training.models.dtos.FacetsDto;
+import wolox.training.models.dtos.SuggestionDto;
 import wolox.training.repositories.BookRepository;
+import wolox.training.services.BookFacetIndex;
+import wolox.training.services.BookImportService;
+import wolox.training.services.BookResponseCache;
+import wolox.training.services.BookSuggestIndex;
+import wolox.training.services.ContributorService;
 import wolox.training.services.OpenLibraryService;
+import wolox.training.services.PageCounter;
+import wolox.training.services.PatchService;
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(BookController.class)
+@Import({BookResponseCache.class, PatchService.class, PageCounter.class})
 public class BookControllerTest {
 
     private final String KEY_PAGE = "page";
@@ -66,9 +94,24 @@ public class BookControllerTest {
     @MockBean
     private OpenLibraryService openLibraryService;
 
+    @MockBean
+    private BookImportService bookImportService;
+
+    @MockBean
+    private ContributorService contributorService;
+
+    @MockBean
+    private BookFacetIndex bookFacetIndex;
+
+    @MockBean
+    private BookSuggestIndex bookSuggestIndex;
+
     @MockBean
     private UserAndPasswordAuthenticationProvider userAndPasswordAuthenticationProvider;
 
+    @Autowired
+    private BookResponseCache bookResponseCache;
+
     private String baseUrl = "/api/books/";
     private String protectedBookListUrl = "/api/books/";
     private Book testBook;
@@ -83,6 +126,8 @@ public class BookControllerTest {
         testBookWithId = TestUtils
             .createBookWithData(1L, "an-isbn", "an author", "some image", 100, "a publisher",
                 "a title", "a subtitle", 2019);
+
+        bookResponseCache.clear();
     }
 
     @Test
@@ -116,7 +161,8 @@ public class BookControllerTest {
         Page<Book> bookPage = new PageImpl<>(books);
 
         given(bookRepository
-            .findAll(any(), any(), any(), any(), any(), any(), any(), any(), any(), any()))
+            .findAll(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                any(), any(), any()))
             .willReturn(bookPage);
 
         mockMvc.perform(get(baseUrl)
@@ -133,7 +179,8 @@ public class BookControllerTest {
         Page<Book> booksPage = new PageImpl<>(books);
 
         given(bookRepository
-            .findAll(any(), any(), any(), any(), any(), any(), any(), any(), any(), any()))
+            .findAll(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                any(), any(), any()))
             .willReturn(booksPage);
 
         mockMvc.perform(get(baseUrl)
@@ -153,6 +200,91 @@ public class BookControllerTest {
             .andExpect(jsonPath("$.content[0].subtitle", is(testBook.getSubtitle())));
     }
 
+    @Test
+    @WithMockUser(username = "username")
+    public void givenRangeFilters_whenGetBooksIsCalled_thenPassThemAsNumbers() throws Exception {
+        given(bookRepository
+            .findAll(any(), any(), any(), any(), any(), any(), any(), any(), any(), eq(1900),
+                eq(2000), eq(100), eq(500), any()))
+            .willReturn(new PageImpl<>(Collections.singletonList(testBook)));
+
+        mockMvc.perform(get(baseUrl)
+            .param("yearFrom", "1900")
+            .param("yearTo", "2000")
+            .param("pagesMin", "100")
+            .param("pagesMax", "500"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].id", is(testBook.getId())));
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenGenrePublisherAndYear_whenSearchIsCalled_thenReturnMatchingBooks()
+        throws Exception {
+        given(bookRepository
+            .findByGenreAndPublisherAndYear(eq("Terror"), eq("El planeta"), eq(2019), any()))
+            .willReturn(new PageImpl<>(Collections.singletonList(testBook)));
+
+        mockMvc.perform(get(baseUrl + "search")
+            .param("genre", "Terror")
+            .param("publisher", "El planeta")
+            .param("year", "2019"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].year", is(testBook.getYear())));
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenFilters_whenGetFacetsIsCalled_thenReturnTheIndexCounts() throws Exception {
+        when(bookFacetIndex.count(null, "Terror", null, null, 2019, null, null, null, null, 10))
+            .thenReturn(new FacetsDto(1, Collections.singletonMap("year",
+                Collections.singletonMap("2019", 1))));
+
+        mockMvc.perform(get(baseUrl + "facets")
+            .param("genre", "Terror")
+            .param("year", "2019"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total", is(1)))
+            .andExpect(jsonPath("$.facets.year['2019']", is(1)));
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenAPrefix_whenSuggestIsCalled_thenReturnTheIndexSuggestions() throws Exception {
+        when(bookSuggestIndex.suggest("the r", BookSuggestIndex.MAX_SUGGESTIONS))
+            .thenReturn(Collections.singletonList(new SuggestionDto("The raven", "title", 1)));
+
+        mockMvc.perform(get(baseUrl + "suggest")
+            .param("prefix", "the r")
+            .param("limit", "500"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].text", is("The raven")))
+            .andExpect(jsonPath("$[0].type", is("title")));
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenASortOnAnUnindexedField_whenGetBooksIsCalled_thenReturnBadRequest()
+        throws Exception {
+        mockMvc.perform(get(baseUrl)
+            .param(KEY_SORT, "subtitle,asc"))
+            .andExpect(status().isBadRequest());
+
+        verify(bookRepository, never())
+            .findAll(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                any(), any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenASortOnTwoFields_whenGetBooksIsCalled_thenReturnBadRequest()
+        throws Exception {
+        mockMvc.perform(get(baseUrl)
+            .param(KEY_SORT, "year,desc")
+            .param(KEY_SORT, "pages,asc"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser(username = "username")
     public void givenABook_whenGetBookByIdIsCalled_thenItMustBeReturned() throws Exception {
@@ -176,6 +308,170 @@ public class BookControllerTest {
             .andExpect(jsonPath("$.subtitle", is(testBook.getSubtitle())));
     }
 
+    @Test
+    @WithMockUser(username = "username")
+    public void givenABook_whenGetBookByIdIsCalledAcceptingSmile_thenReturnSmileBody()
+        throws Exception {
+        when(bookRepository.findById(1L))
+            .thenReturn(Optional.of(testBookWithId));
+
+        byte[] body = mockMvc.perform(get(baseUrl + 1L)
+            .accept(BinaryFormatsConfig.APPLICATION_SMILE))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(BinaryFormatsConfig.APPLICATION_SMILE))
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+
+        JsonNode book = new ObjectMapper(new SmileFactory()).readTree(body);
+        Assertions.assertThat(book.get("id").asLong()).isEqualTo(testBookWithId.getId());
+        Assertions.assertThat(book.get("isbn").asText()).isEqualTo(testBookWithId.getIsbn());
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenSomeFields_whenPatchIsCalled_thenUpdateOnlyThemAndReturnNewVersion()
+        throws Exception {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("title", "a new title");
+        changes.put("pages", 120);
+
+        when(bookRepository.patch(1L, 3L, changes))
+            .thenReturn(1);
+
+        mockMvc.perform(patch(baseUrl + 1L)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"version\": 3, \"title\": \"a new title\", \"pages\": \"120\"}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id", is(1)))
+            .andExpect(jsonPath("$.version", is(4)));
+
+        verify(bookRepository).patch(1L, 3L, changes);
+        verify(bookRepository, never()).findById(1L);
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenAStaleVersion_whenPatchIsCalled_thenReturnConflict() throws Exception {
+        when(bookRepository.patch(eq(1L), eq(3L), anyMap()))
+            .thenReturn(0);
+
+        when(bookRepository.existsById(1L))
+            .thenReturn(true);
+
+        mockMvc.perform(patch(baseUrl + 1L)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"version\": 3, \"title\": \"a new title\"}"))
+            .andExpect(status().isConflict());
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenAnInvalidYear_whenPatchIsCalled_thenReturnBadRequest() throws Exception {
+        mockMvc.perform(patch(baseUrl + 1L)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"version\": 3, \"year\": \"19\"}"))
+            .andExpect(status().isBadRequest());
+
+        verify(bookRepository, never()).patch(any(), any(), anyMap());
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenSomeIds_whenBulkDeleteIsCalled_thenReturnDeletedCount() throws Exception {
+        when(bookRepository.deleteInBulk(Arrays.asList(1L, 2L)))
+            .thenReturn(2L);
+
+        mockMvc.perform(delete(baseUrl)
+            .param("ids", "1,2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.deleted", is(2)));
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenNoIdsNorFilters_whenBulkDeleteIsCalled_thenReturnBadRequest()
+        throws Exception {
+        mockMvc.perform(delete(baseUrl))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenSomeIds_whenGetBooksByIdsIsCalled_thenReturnThemInOrderAndReportMissing()
+        throws Exception {
+        Book otherBook = TestUtils
+            .createBookWithData(2L, "other-isbn", "an author", "some image", 100, "a publisher",
+                "a title", "a subtitle", 2019);
+
+        when(bookRepository.findAllByIdIn(Arrays.asList(2L, 1L, 3L)))
+            .thenReturn(Arrays.asList(testBookWithId, otherBook));
+
+        mockMvc.perform(get(baseUrl)
+            .param("ids", "2,1,3"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items", hasSize(2)))
+            .andExpect(jsonPath("$.items[0].isbn", is(otherBook.getIsbn())))
+            .andExpect(jsonPath("$.items[1].isbn", is(testBookWithId.getIsbn())))
+            .andExpect(jsonPath("$.missing", hasSize(1)))
+            .andExpect(jsonPath("$.missing[0]", is(3)));
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenACachedBook_whenGetBookByIdIsCalledAgain_thenDatabaseIsNotQueried()
+        throws Exception {
+        when(bookRepository.findById(1L))
+            .thenReturn(Optional.of(testBookWithId));
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get(baseUrl + 1L)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.isbn", is(testBookWithId.getIsbn())));
+        }
+
+        verify(bookRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenACachedBook_whenItIsUpdated_thenNextGetReadsTheDatabase() throws Exception {
+        when(bookRepository.findById(1L))
+            .thenReturn(Optional.of(testBookWithId));
+
+        when(bookRepository.save(testBookWithId))
+            .thenReturn(testBookWithId);
+
+        mockMvc.perform(get(baseUrl + 1L)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(put(baseUrl + 1L)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtils.toStringJson(testBookWithId)))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(get(baseUrl + 1L)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk());
+
+        verify(bookRepository, times(3)).findById(1L);
+    }
+
+    @Test
+    public void givenValidCborBookInput_whenCreateIsCalled_thenCreateNewBook() throws Exception {
+        when(bookRepository.save(any(Book.class)))
+            .thenReturn(testBookWithId);
+
+        mockMvc.perform(post(baseUrl)
+            .contentType(BinaryFormatsConfig.APPLICATION_CBOR)
+            .accept(BinaryFormatsConfig.APPLICATION_CBOR)
+            .content(new ObjectMapper(new CBORFactory()).writeValueAsBytes(testBook)))
+            .andExpect(status().isCreated())
+            .andExpect(content().contentTypeCompatibleWith(BinaryFormatsConfig.APPLICATION_CBOR));
+    }
+
     @Test
     @WithMockUser(username = "username")
     public void givenNonExistingBook_whenGetBookIsCalled_thenReturn404() throws Exception {
@@ -392,6 +688,32 @@ public class BookControllerTest {
             .andExpect(status().isNotFound());
     }
 
+    @Test
+    @WithMockUser(username = "username")
+    public void givenIsbnIsNotInDB_whenFindByIsbnIsCalledPreferringAsync_thenReturnAcceptedJob()
+        throws Exception {
+        String isbn = "an-isbn";
+        BookImport job = new BookImport(isbn);
+        ReflectionTestUtils.setField(job, "id", 7L);
+
+        when(bookRepository.findByIsbn(isbn))
+            .thenReturn(Optional.empty());
+
+        when(bookImportService.submit(isbn))
+            .thenReturn(job);
+
+        mockMvc.perform(get(baseUrl.concat("/isbn/{isbn}"), isbn)
+            .header("Prefer", "respond-async")
+            .accept(MediaType.APPLICATION_JSON)
+            .characterEncoding(StandardCharsets.UTF_8.name()))
+            .andExpect(status().isAccepted())
+            .andExpect(header().string("Location", "http://localhost/api/books/imports/7"))
+            .andExpect(jsonPath("$.id", is(7)))
+            .andExpect(jsonPath("$.status", is("PENDING")));
+
+        verify(openLibraryService, never()).bookInfo(isbn);
+    }
+
     @Test
     public void givenNoAuthenticatedUser_whenTryToAccessProtectedResource_thenItWillThrow401()
         throws Exception {
@@ -425,10 +747,12 @@ public class BookControllerTest {
         String size = "10";
 
         PageRequest pageableRequest = PageRequest
-            .of(Integer.parseInt(page), Integer.parseInt(size), Sort.by(Order.asc("isbn")));
+            .of(Integer.parseInt(page), Integer.parseInt(size),
+                Sort.by(Order.asc("isbn"), Order.asc("id")));
 
         given(bookRepository
-            .findAll(null, null, null, null, null, null, null, null, null, pageableRequest))
+            .findAll(null, null, null, null, null, null, null, null, null, null, null, null, null,
+                pageableRequest))
             .willReturn(booksPage);
 
         mockMvc.perform(get(baseUrl)
@@ -446,8 +770,8 @@ public class BookControllerTest {
 
         ArgumentCaptor<Pageable> pageableArgumentCaptor = ArgumentCaptor.forClass(Pageable.class);
         verify(bookRepository)
-            .findAll(any(), any(), any(), any(), any(), any(), any(), any(), any(),
-                pageableArgumentCaptor.capture());
+            .findAll(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                any(), any(), pageableArgumentCaptor.capture());
         Pageable pageable = pageableArgumentCaptor.getValue();
 
         Assertions.assertThat(pageable).isNotNull();
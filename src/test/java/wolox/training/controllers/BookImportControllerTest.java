@@ -0,0 +1,105 @@
+package wolox.training.controllers;
+
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import wolox.training.authentication.UserAndPasswordAuthenticationProvider;
+import wolox.training.models.BookImport;
+import wolox.training.services.BookImportService;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(BookImportController.class)
+public class BookImportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BookImportService bookImportService;
+
+    @MockBean
+    private UserAndPasswordAuthenticationProvider userAndPasswordAuthenticationProvider;
+
+    private String baseUrl = "/api/books/imports/";
+    private BookImport pendingJob;
+
+    @Before
+    public void setup() {
+        pendingJob = new BookImport("an-isbn");
+        ReflectionTestUtils.setField(pendingJob, "id", 1L);
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenNonExistingJob_whenGetImportIsCalled_thenReturn404() throws Exception {
+        when(bookImportService.find(1L))
+            .thenReturn(Optional.empty());
+
+        mockMvc.perform(get(baseUrl + 1L)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenPendingJob_whenGetImportIsCalledWithoutWait_thenReturnCurrentStatus()
+        throws Exception {
+        when(bookImportService.find(1L))
+            .thenReturn(Optional.of(pendingJob));
+
+        MvcResult result = mockMvc.perform(get(baseUrl + 1L)
+            .accept(MediaType.APPLICATION_JSON))
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status", is("PENDING")));
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenPendingJob_whenGetImportIsCalledWithWait_thenReturnWhenJobFinishes()
+        throws Exception {
+        BookImport completedJob = new BookImport("an-isbn");
+        ReflectionTestUtils.setField(completedJob, "id", 1L);
+        completedJob.start(Duration.ofMinutes(5));
+        completedJob.complete(10L);
+
+        when(bookImportService.find(1L))
+            .thenReturn(Optional.of(pendingJob));
+
+        when(bookImportService.completion(pendingJob))
+            .thenReturn(CompletableFuture.completedFuture(completedJob));
+
+        MvcResult result = mockMvc.perform(get(baseUrl + 1L)
+            .param("wait", "5")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status", is("COMPLETED")))
+            .andExpect(jsonPath("$.bookId", is(10)));
+    }
+}
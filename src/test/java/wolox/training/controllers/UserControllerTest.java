@@ -1,6 +1,10 @@
 package wolox.training.controllers;
 
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -15,8 +19,10 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -28,6 +34,7 @@ import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -45,9 +52,13 @@ import wolox.training.models.Book;
 import wolox.training.models.User;
 import wolox.training.repositories.BookRepository;
 import wolox.training.repositories.UserRepository;
+import wolox.training.services.PageCounter;
+import wolox.training.services.PatchService;
+import wolox.training.services.UserLookupService;
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(UserController.class)
+@Import({PatchService.class, PageCounter.class, UserLookupService.class})
 public class UserControllerTest {
 
     private final String OLD_PASSWORD_KEY = "oldPassword";
@@ -115,6 +126,111 @@ public class UserControllerTest {
             .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @WithMockUser(username = "username")
+    public void givenABirthDate_whenPatchIsCalled_thenUpdateItWithTheCurrentVersion()
+        throws Exception {
+        when(userRepository.patch(1L, 0L,
+            Collections.singletonMap("birthDate", LocalDate.of(1992, 11, 26))))
+            .thenReturn(1);
+
+        mockMvc.perform(patch(baseUrl + 1L)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"version\": 0, \"birthDate\": \"1992-11-26\"}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.version", is(1)));
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenThePassword_whenPatchIsCalled_thenReturnBadRequest() throws Exception {
+        mockMvc.perform(patch(baseUrl + 1L)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"version\": 0, \"password\": \"a password\"}"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenIdsInBody_whenLookupIsCalled_thenReturnFoundUsersAndMissingIds()
+        throws Exception {
+        when(userRepository.findAllByIdIn(Arrays.asList(1L, 5L)))
+            .thenReturn(Collections.singletonList(testUserWithId));
+
+        mockMvc.perform(post(baseUrl + "lookup")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[1, 5]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].username", is(testUserWithId.getUsername())))
+            .andExpect(jsonPath("$.missing[0]", is(5)));
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenFieldsParam_whenGetUsersIsCalled_thenReturnOnlyThoseFields()
+        throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("username", "juanes");
+
+        when(userRepository.findAllFields(any(), any(Pageable.class)))
+            .thenReturn(new PageImpl<>(Collections.singletonList(row)));
+
+        mockMvc.perform(get(baseUrl)
+            .param("fields", "id,username"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].username", is("juanes")))
+            .andExpect(jsonPath("$.content[0].name").doesNotExist());
+
+        verify(userRepository).findAllFields(Arrays.asList("id", "username"),
+            PageRequest.of(0, 20));
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenMoreMatchesThanTheSize_whenSearchIsCalled_thenReturnCursorAndAges()
+        throws Exception {
+        LocalDate startDate = LocalDate.of(1980, 1, 1);
+        User first = TestUtils.createUserWithData(1L, "first", "a name", "password");
+        User second = TestUtils.createUserWithData(2L, "second", "a name", "password");
+        Map<String, Long> ages = new LinkedHashMap<>();
+        ages.put("0-17", 3L);
+
+        when(userRepository.search(startDate, null, "nam", null, null, 2))
+            .thenReturn(Arrays.asList(first, second));
+        when(userRepository.countByAge(eq(startDate), isNull(), eq("nam"), any()))
+            .thenReturn(ages);
+
+        mockMvc.perform(get(baseUrl + "search")
+            .param("startDate", "1980-01-01")
+            .param("name", "nam")
+            .param("size", "1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.users", hasSize(1)))
+            .andExpect(jsonPath("$.users[0].username", is("first")))
+            .andExpect(jsonPath("$.nextBirthDate", is(first.getBirthDate().toString())))
+            .andExpect(jsonPath("$.nextId", is(1)))
+            .andExpect(jsonPath("$.ages['0-17']", is(3)));
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenOnlyHalfOfTheCursor_whenSearchIsCalled_thenReturnBadRequest()
+        throws Exception {
+        mockMvc.perform(get(baseUrl + "search")
+            .param("afterId", "1"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "username")
+    public void givenASortOnAnUnindexedField_whenGetUsersIsCalled_thenReturnBadRequest()
+        throws Exception {
+        mockMvc.perform(get(baseUrl)
+            .param(KEY_SORT, "password,asc"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser(username = "username")
     public void givenNoUsers_thenGetUsersReturnEmptyList() throws Exception {
@@ -125,9 +241,10 @@ public class UserControllerTest {
         Page<User> userPage = new PageImpl<>(Collections.emptyList());
 
         Pageable pageableRequest = PageRequest
-            .of(Integer.parseInt(page), Integer.parseInt(size), Sort.by(Order.asc("name")));
+            .of(Integer.parseInt(page), Integer.parseInt(size),
+                Sort.by(Order.asc("name"), Order.asc("id")));
 
-        when(userRepository.findAll(pageableRequest))
+        when(userRepository.findAllWithBooks(pageableRequest))
             .thenReturn(userPage);
 
         mockMvc.perform(get(baseUrl)
@@ -141,7 +258,7 @@ public class UserControllerTest {
             .andExpect(jsonPath("$.content").isEmpty());
 
         ArgumentCaptor<Pageable> pageableArgumentCaptor = ArgumentCaptor.forClass(Pageable.class);
-        verify(userRepository).findAll(pageableArgumentCaptor.capture());
+        verify(userRepository).findAllWithBooks(pageableArgumentCaptor.capture());
         Pageable pageable = pageableArgumentCaptor.getValue();
 
         Assertions.assertThat(pageable).isNotNull();
@@ -172,9 +289,10 @@ public class UserControllerTest {
         Page<User> userPage = new PageImpl<>(users);
 
         Pageable pageableRequest = PageRequest
-            .of(Integer.parseInt(page), Integer.parseInt(size), Sort.by(Order.desc("username")));
+            .of(Integer.parseInt(page), Integer.parseInt(size),
+                Sort.by(Order.desc("username"), Order.desc("id")));
 
-        when(userRepository.findAll(pageableRequest))
+        when(userRepository.findAllWithBooks(pageableRequest))
             .thenReturn(userPage);
 
         mockMvc.perform(get(baseUrl)
@@ -191,10 +309,11 @@ public class UserControllerTest {
             .andExpect(
                 jsonPath("$.content[0].birthDate", is(userWithData.getBirthDate().toString())))
             .andExpect(jsonPath("$.content[0].username", is("username3")))
-            .andExpect(jsonPath("$.content[1].username", is("username2")));
+            .andExpect(jsonPath("$.content[1].username", is("username2")))
+            .andExpect(jsonPath("$.countType", is("exact")));
 
         ArgumentCaptor<Pageable> pageableArgumentCaptor = ArgumentCaptor.forClass(Pageable.class);
-        verify(userRepository).findAll(pageableArgumentCaptor.capture());
+        verify(userRepository).findAllWithBooks(pageableArgumentCaptor.capture());
         Pageable pageable = pageableArgumentCaptor.getValue();
 
         Assertions.assertThat(pageable).isNotNull();
@@ -213,7 +332,7 @@ public class UserControllerTest {
     public void givenExistingUser_thenItMustBeReturned() throws Exception {
         Long id = 1L;
 
-        when(userRepository.findById(id)).thenReturn(Optional.of(testUser));
+        when(userRepository.findWithBooksById(id)).thenReturn(Optional.of(testUser));
 
         mockMvc.perform(get(baseUrl + id)
             .contentType(MediaType.APPLICATION_JSON)
@@ -228,7 +347,7 @@ public class UserControllerTest {
     public void givenNonExistingUser_thenNotFoundMustBeReturned() throws Exception {
         Long id = 1L;
 
-        when(userRepository.findById(id))
+        when(userRepository.findWithBooksById(id))
             .thenReturn(Optional.empty());
 
         mockMvc.perform(get(baseUrl + id)
@@ -307,7 +426,7 @@ public class UserControllerTest {
     @Test
     @WithMockUser(username = "username")
     public void givenNonExistingBook_whenAddBookIsCalled_then404MustBeReturned() throws Exception {
-        when(userRepository.findById(1L))
+        when(userRepository.findWithBooksById(1L))
             .thenReturn(Optional.of(testUserWithId));
 
         when(bookRepository.findById(1L))
@@ -320,7 +439,7 @@ public class UserControllerTest {
     @Test
     @WithMockUser(username = "username")
     public void givenNonExistingUser_whenAddBookIsCalled_then404MustBeReturned() throws Exception {
-        when(userRepository.findById(1L))
+        when(userRepository.findWithBooksById(1L))
             .thenReturn(Optional.empty());
 
         when(bookRepository.findById(1L))
@@ -333,7 +452,7 @@ public class UserControllerTest {
     @Test
     @WithMockUser(username = "username")
     public void givenABook_thenAddIdToUserCollection() throws Exception {
-        when(userRepository.findById(1L))
+        when(userRepository.findWithBooksById(1L))
             .thenReturn(Optional.of(testUserWithId));
 
         when(bookRepository.findById(1L))
@@ -351,7 +470,7 @@ public class UserControllerTest {
         User user = TestUtils.cloneUser(testUserWithId);
         user.setBooks(Collections.singletonList(testBook));
 
-        when(userRepository.findById(1L))
+        when(userRepository.findWithBooksById(1L))
             .thenReturn(Optional.of(user));
 
         when(bookRepository.findById(1L))
@@ -367,7 +486,7 @@ public class UserControllerTest {
         User user = TestUtils.cloneUser(testUserWithId);
         user.setBooks(Collections.singletonList(testBook));
 
-        when(userRepository.findById(1L))
+        when(userRepository.findWithBooksById(1L))
             .thenReturn(Optional.of(user));
 
         when(bookRepository.findById(1L))
@@ -385,7 +504,7 @@ public class UserControllerTest {
         books.add(testBook);
         user.setBooks(books);
 
-        when(userRepository.findById(1L))
+        when(userRepository.findWithBooksById(1L))
             .thenReturn(Optional.of(user));
 
         when(bookRepository.findById(1L))
@@ -401,7 +520,7 @@ public class UserControllerTest {
         throws Exception {
         User user = TestUtils.cloneUser(testUserWithId);
 
-        when(userRepository.findById(1L))
+        when(userRepository.findWithBooksById(1L))
             .thenReturn(Optional.of(user));
 
         when(bookRepository.findById(1L))
@@ -450,7 +569,7 @@ public class UserControllerTest {
         throws Exception {
         User user = TestUtils.cloneUser(testUserWithId);
 
-        when(userRepository.findById(1L))
+        when(userRepository.findWithBooksById(1L))
             .thenReturn(Optional.empty());
 
         Map<String, String> body = new HashMap<>();
@@ -472,7 +591,7 @@ public class UserControllerTest {
         User user = TestUtils.cloneUser(testUserWithId);
         user.setPassword("oldPassword");
 
-        when(userRepository.findById(1L))
+        when(userRepository.findWithBooksById(1L))
             .thenReturn(Optional.of(user));
 
         Map<String, String> body = new HashMap<>();
@@ -494,7 +613,7 @@ public class UserControllerTest {
         User user = TestUtils.cloneUser(testUserWithId);
         user.setPassword("oldPassword");
 
-        when(userRepository.findById(1L))
+        when(userRepository.findWithBooksById(1L))
             .thenReturn(Optional.of(user));
 
         Map<String, String> body = new HashMap<>();
@@ -533,7 +652,7 @@ public class UserControllerTest {
         User user = TestUtils.cloneUser(testUserWithId);
         user.setUsername("username");
 
-        when(userRepository.findFirstByUsername("username"))
+        when(userRepository.findFirstWithBooksByUsername("username"))
             .thenReturn(Optional.of(user));
 
         mockMvc.perform(get(selfUserUrl)
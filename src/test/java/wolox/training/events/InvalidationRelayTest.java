@@ -0,0 +1,89 @@
+package wolox.training.events;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.models.Book;
+
+public class InvalidationRelayTest {
+
+    private ApplicationEventPublisher firstNodePublisher;
+    private ApplicationEventPublisher secondNodePublisher;
+    private InvalidationRelay firstNode;
+    private InvalidationRelay secondNode;
+
+    @Before
+    public void setup() {
+        InvalidationBus invalidationBus = new LocalInvalidationBus();
+        firstNodePublisher = mock(ApplicationEventPublisher.class);
+        secondNodePublisher = mock(ApplicationEventPublisher.class);
+        firstNode = createRelay(invalidationBus, firstNodePublisher);
+        secondNode = createRelay(invalidationBus, secondNodePublisher);
+    }
+
+    @After
+    public void tearDown() {
+        firstNode.unsubscribe();
+        secondNode.unsubscribe();
+    }
+
+    @Test
+    public void givenALocalChange_whenItIsCommitted_thenOnlyOtherNodesReceiveIt() {
+        firstNode.onEntityChange(EntityChangeEvent.updated(Book.class, 1L, 2L));
+
+        ArgumentCaptor<EntityChangeEvent> eventCaptor = ArgumentCaptor
+            .forClass(EntityChangeEvent.class);
+        verify(secondNodePublisher).publishEvent(eventCaptor.capture());
+        verify(firstNodePublisher, never()).publishEvent(any(Object.class));
+
+        EntityChangeEvent event = eventCaptor.getValue();
+        Assertions.assertThat(event.getType()).isEqualTo(Book.class);
+        Assertions.assertThat(event.getIds()).containsExactly(1L);
+        Assertions.assertThat(event.getVersion()).isEqualTo(2L);
+        Assertions.assertThat(event.getOrigin()).isNotNull();
+    }
+
+    @Test
+    public void givenAChangeFromAnotherNode_whenItIsRepublished_thenItIsNotSentAgain() {
+        firstNode.onEntityChange(EntityChangeEvent.updated(Book.class, 1L, 2L));
+
+        ArgumentCaptor<EntityChangeEvent> eventCaptor = ArgumentCaptor
+            .forClass(EntityChangeEvent.class);
+        verify(secondNodePublisher).publishEvent(eventCaptor.capture());
+
+        // The republished event reaches the second node's relay as any other local event
+        secondNode.onEntityChange(eventCaptor.getValue());
+
+        verify(firstNodePublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    public void givenSeparateBuses_whenAChangeIsCommitted_thenTheOtherNodeDoesNotReceiveIt() {
+        InvalidationRelay otherContext = createRelay(new LocalInvalidationBus(),
+            secondNodePublisher);
+
+        otherContext.onEntityChange(EntityChangeEvent.updated(Book.class, 1L, 2L));
+        otherContext.unsubscribe();
+
+        verify(firstNodePublisher, never()).publishEvent(any(Object.class));
+        verify(secondNodePublisher, never()).publishEvent(any(Object.class));
+    }
+
+    private InvalidationRelay createRelay(InvalidationBus invalidationBus,
+        ApplicationEventPublisher eventPublisher) {
+        InvalidationRelay relay = new InvalidationRelay();
+        ReflectionTestUtils.setField(relay, "invalidationBus", invalidationBus);
+        ReflectionTestUtils.setField(relay, "eventPublisher", eventPublisher);
+        relay.subscribe();
+        return relay;
+    }
+}
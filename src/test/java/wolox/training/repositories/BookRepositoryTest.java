@@ -3,7 +3,11 @@ package wolox.training.repositories;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
@@ -13,11 +17,16 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Order;
 import org.springframework.test.context.junit4.SpringRunner;
 import wolox.training.TestUtils;
+import wolox.training.exceptions.InvalidFieldsException;
+import wolox.training.models.Author;
 import wolox.training.models.Book;
+import wolox.training.models.Publisher;
+import wolox.training.models.User;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
@@ -38,6 +47,13 @@ public class BookRepositoryTest {
             .createBookWithData(null, isbn, bookAuthor, "http://my-image.net/book",
                 33, "El planeta", "The raven", "Narrative Poem", 1845);
 
+        Author author = new Author(bookAuthor);
+        Publisher publisher = new Publisher(testBook.getPublisher());
+        TestUtils.persist(testEntityManager, author);
+        TestUtils.persist(testEntityManager, publisher);
+        testBook.setAuthors(Collections.singleton(author));
+        testBook.setPublishers(Collections.singleton(publisher));
+
         TestUtils.persist(testEntityManager, testBook);
     }
 
@@ -75,7 +91,7 @@ public class BookRepositoryTest {
         }
 
         Page<Book> bookList = bookRepository
-            .findAll(null, null, null, null, null, null, null, null, null,
+            .findAll(null, null, null, null, null, null, null, null, null, null, null, null, null,
                 PageRequest.of(0, 2, Sort.by(Order.desc("id"))));
 
         List<Book> contentList = bookList.getContent();
@@ -93,7 +109,8 @@ public class BookRepositoryTest {
     @Test
     public void givenNoBooksInDatabase_whenFindAll_thenReturnEmptyList() {
         Page<Book> bookList = bookRepository
-            .findAll(null, null, null, null, null, null, null, null, null, PageRequest.of(0, 1));
+            .findAll(null, null, null, null, null, null, null, null, null, null, null, null, null,
+                PageRequest.of(0, 1));
 
         Assertions.assertThat(bookList.getContent()).isEmpty();
     }
@@ -114,7 +131,7 @@ public class BookRepositoryTest {
     @Test
     public void givenNoBooksOnDB_whenFindByGenreAndPublisherAndYear_thenReturnEmpty() {
         Page<Book> filteredBooks = bookRepository
-            .findByGenreAndPublisherAndYear("a genre", null, "1992", PageRequest.of(0, 1));
+            .findByGenreAndPublisherAndYear("a genre", null, 1992, PageRequest.of(0, 1));
 
         Assertions.assertThat(filteredBooks.getContent()).isEmpty();
     }
@@ -124,7 +141,7 @@ public class BookRepositoryTest {
         persistBook();
 
         String publisher = testBook.getPublisher();
-        String year = testBook.getYear();
+        Integer year = Integer.valueOf(testBook.getYear());
 
         Page<Book> filteredBooks = bookRepository
             .findByGenreAndPublisherAndYear(null, publisher, year, PageRequest.of(0, 1));
@@ -135,7 +152,7 @@ public class BookRepositoryTest {
         Assertions.assertThat(foundBook.getAuthor()).isEqualTo(testBook.getAuthor());
         Assertions.assertThat(foundBook.getIsbn()).isEqualTo(testBook.getIsbn());
         Assertions.assertThat(foundBook.getPublisher()).isEqualTo(publisher);
-        Assertions.assertThat(foundBook.getYear()).isEqualTo(year);
+        Assertions.assertThat(foundBook.getYear()).isEqualTo(testBook.getYear());
     }
 
     @Test
@@ -145,9 +162,186 @@ public class BookRepositoryTest {
         Page<Book> bookList = bookRepository
             .findAll(testBook.getIsbn(), null, null, null, testBook.getPages(), null,
                 testBook.getSubtitle().substring(0, 5), testBook.getTitle().substring(3), null,
-                PageRequest.of(0, 1));
+                null, null, null, null, PageRequest.of(0, 1));
 
         Assertions.assertThat(bookList.getContent()).hasSize(1);
         Assertions.assertThat(bookList.getContent().get(0)).isEqualTo(testBook);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void givenBooksInDatabase_whenFindAllWithRanges_thenReturnBooksWithinThem() {
+        persistBook();
+        Book otherBook = TestUtils
+            .createBookWithData(null, "other-isbn", "Julio Cortazar", "http://my-image.net/book",
+                600, "Sudamericana", "Rayuela", "Novel", 1963);
+        TestUtils.persist(testEntityManager, otherBook);
+
+        Page<Book> bookList = bookRepository
+            .findAll(null, null, null, null, null, null, null, null, null, 1900, 2000, 100, null,
+                PageRequest.of(0, 2));
+
+        Assertions.assertThat(bookList.getContent()).containsExactly(otherBook);
+    }
+
+    @Test
+    public void givenBooksInDatabase_whenFindSliceAndCountAll_thenSkipAndRunTheCountQuery() {
+        persistBook();
+        Book otherBook = TestUtils
+            .createBookWithData(null, "other-isbn", "Julio Cortazar", "http://my-image.net/book",
+                600, "Sudamericana", "Rayuela", "Novel", 1963);
+        TestUtils.persist(testEntityManager, otherBook);
+
+        Slice<Book> bookSlice = bookRepository
+            .findSlice(null, null, null, null, null, null, null, null, null, null, null, null, null,
+                PageRequest.of(0, 1, Sort.by("id")));
+
+        Assertions.assertThat(bookSlice.getContent()).containsExactly(testBook);
+        Assertions.assertThat(bookSlice.hasNext()).isTrue();
+        Assertions.assertThat(bookRepository
+            .countAll(null, null, null, null, null, null, null, null, null, 1900, null, null, null))
+            .isEqualTo(1);
+        // H2 has no planner statistics
+        Assertions.assertThat(bookRepository.estimateCount()).isEmpty();
+    }
+
+    @Test
+    public void givenBooksInDatabase_whenFindAllFieldsWithRanges_thenReturnBooksWithinThem() {
+        persistBook();
+        Book otherBook = TestUtils
+            .createBookWithData(null, "other-isbn", "Julio Cortazar", "http://my-image.net/book",
+                600, "Sudamericana", "Rayuela", "Novel", 1963);
+        TestUtils.persist(testEntityManager, otherBook);
+
+        Page<Map<String, Object>> bookList = bookRepository
+            .findAllFields(Collections.singletonList("id"), null, null, null, null, null, null,
+                null, null, null, null, 1900, null, 100, PageRequest.of(0, 2));
+
+        Assertions.assertThat(bookList.getContent()).hasSize(1);
+        Assertions.assertThat(bookList.getContent().get(0))
+            .containsEntry("id", testBook.getId());
+    }
+
+    @Test
+    public void givenBooksInDatabase_whenFindAllFieldsIsCalled_thenReturnOnlyRequestedFields() {
+        persistBook();
+
+        Page<Map<String, Object>> bookList = bookRepository
+            .findAllFields(Arrays.asList("id", "title"), null, bookAuthor, null, null, null,
+                null, null, null, null, null, null, null, null, PageRequest.of(0, 1));
+
+        Assertions.assertThat(bookList.getTotalElements()).isEqualTo(1);
+        Assertions.assertThat(bookList.getContent().get(0))
+            .containsOnlyKeys("id", "title")
+            .containsEntry("id", testBook.getId())
+            .containsEntry("title", testBook.getTitle());
+    }
+
+    @Test
+    public void givenBooksInDatabase_whenFindAllFieldsSelectsTheYear_thenReturnItAsText() {
+        persistBook();
+
+        Page<Map<String, Object>> bookList = bookRepository
+            .findAllFields(Collections.singletonList("year"), null, null, null, null, null,
+                null, null, null, null, null, null, null, null, PageRequest.of(0, 1));
+
+        Assertions.assertThat(bookList.getContent().get(0))
+            .containsEntry("year", testBook.getYear());
+    }
+
+    @Test(expected = InvalidFieldsException.class)
+    public void givenAnUnknownField_whenFindAllFieldsIsCalled_thenThrowInvalidFields() {
+        bookRepository
+            .findAllFields(Collections.singletonList("users"), null, null, null, null, null,
+                null, null, null, null, null, null, null, null, PageRequest.of(0, 1));
+    }
+
+    @Test
+    public void givenABook_whenPatchIsCalledWithItsVersion_thenUpdateFieldsAndBumpVersion() {
+        persistBook();
+        Long version = testBook.getVersion();
+
+        int updated = bookRepository
+            .patch(testBook.getId(), version, Collections.singletonMap("title", "Annabel Lee"));
+        testEntityManager.clear();
+
+        Book patchedBook = testEntityManager.find(Book.class, testBook.getId());
+        Assertions.assertThat(updated).isEqualTo(1);
+        Assertions.assertThat(patchedBook.getTitle()).isEqualTo("Annabel Lee");
+        Assertions.assertThat(patchedBook.getAuthor()).isEqualTo(bookAuthor);
+        Assertions.assertThat(patchedBook.getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    public void givenABook_whenPatchIsCalledWithATextYear_thenStoreItAsANumber() {
+        persistBook();
+
+        int updated = bookRepository.patch(testBook.getId(), testBook.getVersion(),
+            Collections.singletonMap("year", "1849"));
+        testEntityManager.clear();
+
+        Assertions.assertThat(updated).isEqualTo(1);
+        Assertions.assertThat(testEntityManager.find(Book.class, testBook.getId()).getYear())
+            .isEqualTo("1849");
+    }
+
+    @Test
+    public void givenABook_whenPatchIsCalledWithAStaleVersion_thenNothingIsUpdated() {
+        persistBook();
+
+        int updated = bookRepository.patch(testBook.getId(), testBook.getVersion() + 1,
+            Collections.singletonMap("title", "Annabel Lee"));
+
+        Assertions.assertThat(updated).isEqualTo(0);
+    }
+
+    @Test
+    public void givenAnOwnedBook_whenDeleteInBulkIsCalled_thenRemoveItAndItsOwnerLinks() {
+        persistBook();
+        User owner = TestUtils.createUserWithData(null, "poe", "Edgar", "a password");
+        owner.addBook(testBook);
+        TestUtils.persist(testEntityManager, owner);
+
+        long deleted = bookRepository.deleteInBulk(Arrays.asList(testBook.getId(), -1L));
+
+        Assertions.assertThat(deleted).isEqualTo(1);
+        Assertions.assertThat(testEntityManager.find(Book.class, testBook.getId())).isNull();
+        Assertions.assertThat(testEntityManager.find(User.class, owner.getId()).getBooks())
+            .isEmpty();
+    }
+
+    @Test
+    public void givenBooksInDatabase_whenDeleteMatchingIsCalled_thenRemoveOnlyMatchingBooks() {
+        persistBook();
+        Book otherBook = TestUtils
+            .createBookWithData(null, "other-isbn", "Julio Cortazar", "http://my-image.net/book",
+                600, "Sudamericana", "Rayuela", "Novel", 1963);
+        TestUtils.persist(testEntityManager, otherBook);
+
+        long deleted = bookRepository
+            .deleteMatching(null, bookAuthor, null, null, null, null, null, null, null, null,
+                null, null, null);
+
+        Assertions.assertThat(deleted).isEqualTo(1);
+        Assertions.assertThat(bookRepository.findById(otherBook.getId())).isPresent();
+    }
+
+    @Test
+    public void givenABookWithCoAuthors_whenFindAllByOneOfThem_thenReturnTheBook() {
+        Author firstAuthor = new Author("Neil Gaiman");
+        Author secondAuthor = new Author("Terry Pratchett");
+        TestUtils.persist(testEntityManager, firstAuthor);
+        TestUtils.persist(testEntityManager, secondAuthor);
+
+        Book book = TestUtils
+            .createBookWithData(null, isbn, "Neil Gaiman - Terry Pratchett",
+                "http://my-image.net/book", 400, "Gollancz", "Good Omens", "A novel", 1990);
+        book.setAuthors(new LinkedHashSet<>(Arrays.asList(firstAuthor, secondAuthor)));
+        TestUtils.persist(testEntityManager, book);
+
+        Page<Book> bookList = bookRepository
+            .findAll(null, " terry PRATCHETT", null, null, null, null, null, null, null, null,
+                null, null, null, PageRequest.of(0, 1));
+
+        Assertions.assertThat(bookList.getContent()).containsExactly(book);
+    }
+}
@@ -0,0 +1,109 @@
+package wolox.training.repositories;
+
+import javax.sql.DataSource;
+import org.assertj.core.api.Assertions;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.testcontainers.DockerClientFactory;
+import wolox.training.TestUtils;
+import wolox.training.models.Book;
+import wolox.training.models.User;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("postgres")
+public class PostgresMigrationTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeClass
+    public static void requireDocker() {
+        Assume.assumeTrue("PostgreSQL runs in a container, which needs Docker",
+            DockerClientFactory.instance().isDockerAvailable());
+    }
+
+    @Test
+    public void givenTheMigrations_whenTheContextStarts_thenApplyThemAll() {
+        // The context only starts once Hibernate validated the entities against this schema
+        Assertions.assertThat(flyway.info().pending()).isEmpty();
+        Assertions.assertThat(flyway.info().current().getVersion().getVersion())
+            .isEqualTo("10");
+    }
+
+    @Test
+    public void givenTheMigratedSchema_whenBooksAndUsersAreSaved_thenFindThem() {
+        Book book = TestUtils.createBookWithData(null, "an-isbn", "an author", "an image", 100,
+            "a publisher", "a title", "a subtitle", 2019);
+        TestUtils.persist(testEntityManager, book);
+        User user = TestUtils.createUserWithData(null, " Some-Username", "a name", "password");
+        user.addBook(book);
+        TestUtils.persist(testEntityManager, user);
+        testEntityManager.clear();
+
+        Assertions.assertThat(userRepository.findFirstWithBooksByUsername("some-username"))
+            .hasValueSatisfying(found -> Assertions.assertThat(found.getBooks()).hasSize(1));
+        Assertions.assertThat(bookRepository
+            .findByGenreAndPublisherAndYear(null, null, 2019, Pageable.unpaged()).getContent())
+            .extracting(Book::getId)
+            .containsExactly(book.getId());
+        Assertions.assertThat(bookRepository
+            .findByGenreAndPublisherAndYear(null, null, null, Pageable.unpaged()).getContent())
+            .hasSize(1);
+    }
+
+    @Test
+    public void givenUsernamesDifferingInCase_whenV9Runs_thenFailListingThem() {
+        Flyway beforeV9 = migrations("v9_duplicates", "8");
+
+        try {
+            beforeV9.migrate();
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.update("INSERT INTO v9_duplicates.users "
+                + "(id, birth_date, name, password, username) VALUES "
+                + "(1, '1990-01-01', 'a name', 'password', 'Someone'), "
+                + "(2, '1990-01-01', 'a name', 'password', ' someone ')");
+
+            Assertions.assertThatThrownBy(() -> migrations("v9_duplicates", "9").migrate())
+                .isInstanceOf(FlywayException.class)
+                .hasMessageContaining("Usernames differing only in case or surrounding spaces")
+                .hasMessageContaining("someone");
+        } finally {
+            beforeV9.clean();
+        }
+    }
+
+    private Flyway migrations(String schema, String target) {
+        return Flyway.configure()
+            .dataSource(dataSource)
+            .schemas(schema)
+            .target(target)
+            .load();
+    }
+}
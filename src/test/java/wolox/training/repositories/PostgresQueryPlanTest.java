@@ -0,0 +1,146 @@
+package wolox.training.repositories;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.testcontainers.DockerClientFactory;
+
+/**
+ * Explains the SQL the repositories send to PostgreSQL against the migrated schema. Sequential
+ * scans and sorts are disabled, so the planner only falls back to them when no index serves the
+ * statement.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("postgres")
+public class PostgresQueryPlanTest {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeClass
+    public static void requireDocker() {
+        Assume.assumeTrue("PostgreSQL runs in a container, which needs Docker",
+            DockerClientFactory.instance().isDockerAvailable());
+    }
+
+    @Before
+    public void setup() {
+        RecordingStatementInspector.clear();
+    }
+
+    @Test
+    public void givenASortableField_whenFindAllSortsOnIt_thenReadItsIndexInOrder() {
+        for (String field : Arrays.asList("isbn", "title", "year", "pages")) {
+            for (Direction direction : Direction.values()) {
+                String plan = explainFirst(pageable -> bookRepository.findAll(null, null, null,
+                    null, null, null, null, null, null, null, null, null, null, pageable),
+                    books(Sort.by(direction, field)));
+
+                Assertions.assertThat(plan)
+                    .contains("book_" + field + "_id_idx")
+                    .doesNotContain("Sort");
+            }
+        }
+    }
+
+    @Test
+    public void givenARange_whenFindSliceSortsOnItsField_thenReadOnlyTheRangeOfTheIndex() {
+        String plan = explainFirst(pageable -> bookRepository.findSlice(null, null, null, null,
+            null, null, null, null, null, 1900, 2000, null, null, pageable),
+            PageRequest.of(0, PAGE_SIZE, Sort.by("year")));
+
+        Assertions.assertThat(plan)
+            .contains("Index Scan using book_year_id_idx")
+            .contains("Index Cond")
+            .doesNotContain("Sort");
+    }
+
+    @Test
+    public void givenARange_whenCountAllIsCalled_thenCountWithinTheIndex() {
+        bookRepository.countAll(null, null, null, null, null, null, null, null, null, null,
+            null, 100, 500);
+
+        Assertions.assertThat(explain(RecordingStatementInspector.statements().get(0)))
+            .contains("book_pages_id_idx")
+            .contains("Index Cond");
+    }
+
+    @Test
+    public void givenASortableField_whenUsersArePagedOnIt_thenReadItsIndexInOrder() {
+        String[][] fields = {{"username", "username"}, {"name", "name"},
+            {"birthDate", "birth_date"}};
+
+        for (String[] field : fields) {
+            String plan = explainFirst(userRepository::findAllWithBooks, Sorting.stable(
+                PageRequest.of(0, PAGE_SIZE, Sort.by(field[0])), UserRepository.SORTABLE_FIELDS));
+
+            Assertions.assertThat(plan)
+                .contains("users_" + field[1] + "_id_idx")
+                .doesNotContain("Sort");
+        }
+    }
+
+    // Pages the way the controller does, with the id appended as tiebreaker
+    private static Pageable books(Sort sort) {
+        return Sorting.stable(PageRequest.of(0, PAGE_SIZE, sort), BookRepository.SORTABLE_FIELDS);
+    }
+
+    private String explainFirst(Consumer<Pageable> call, Pageable pageable) {
+        RecordingStatementInspector.clear();
+        call.accept(pageable);
+        return explain(RecordingStatementInspector.statements().get(0));
+    }
+
+    // Numeric literals of criteria queries are inlined, the only parameter left is the limit
+    private String explain(String sql) {
+        return testEntityManager.getEntityManager().unwrap(Session.class)
+            .doReturningWork(connection -> {
+                List<String> lines = new ArrayList<>();
+
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET LOCAL enable_seqscan = off");
+                    statement.execute("SET LOCAL enable_sort = off");
+
+                    try (ResultSet resultSet = statement.executeQuery(
+                        "EXPLAIN " + sql.replace("?", String.valueOf(PAGE_SIZE)))) {
+                        while (resultSet.next()) {
+                            lines.add(resultSet.getString(1));
+                        }
+                    }
+                }
+
+                return String.join("\n", lines);
+            });
+    }
+}
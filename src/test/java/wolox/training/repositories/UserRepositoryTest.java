@@ -1,10 +1,15 @@
 package wolox.training.repositories;
 
+import static org.assertj.core.api.Assertions.entry;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import javax.persistence.PersistenceException;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -14,10 +19,12 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Order;
 import org.springframework.test.context.junit4.SpringRunner;
 import wolox.training.TestUtils;
+import wolox.training.models.Book;
 import wolox.training.models.User;
 
 @RunWith(SpringRunner.class)
@@ -53,6 +60,37 @@ public class UserRepositoryTest {
         assertThat(userFound.getBirthDate(), is(testUser.getBirthDate()));
     }
 
+    @Test
+    public void givenAnUsernameInOtherCase_whenFindByUsernameIsCalled_thenReturnUser() {
+        persistUser();
+
+        Assertions.assertThat(userRepository.findFirstByUsername(" Some-USERNAME"))
+            .hasValueSatisfying(user -> Assertions.assertThat(user.getId())
+                .isEqualTo(testUser.getId()));
+    }
+
+    @Test
+    public void givenATakenUsername_whenAnotherUserIsSavedWithIt_thenRejectIt() {
+        persistUser();
+        User otherUser = TestUtils
+            .createUserWithData(null, "SOME-username ", "other name", "password");
+
+        Assertions.assertThatThrownBy(() -> testEntityManager.persistAndFlush(otherUser))
+            .isInstanceOf(PersistenceException.class);
+    }
+
+    @Test
+    public void givenANewUsername_whenPatchIsCalled_thenFindTheUserByIt() {
+        persistUser();
+        testEntityManager.clear();
+
+        userRepository.patch(testUser.getId(), testUser.getVersion(),
+            Collections.singletonMap("username", "New-Username"));
+
+        Assertions.assertThat(userRepository.findFirstByUsername("new-username")).isPresent();
+        Assertions.assertThat(userRepository.findFirstByUsername(userUsername)).isEmpty();
+    }
+
     @Test
     public void givenUnknownUsername_whenFinByUsernameIsCalled_thenReturnNoResults() {
         Assertions.assertThat(userRepository.findFirstByUsername("some username").isPresent())
@@ -94,6 +132,47 @@ public class UserRepositoryTest {
 
     }
 
+    @Test
+    public void givenUsersWithBooks_whenFindSliceWithBooksIsCalled_thenFetchTheirBooks() {
+        Book book = TestUtils.createBookWithData(null, "an-isbn", "an author", "an image", 100,
+            "a publisher", "a title", "a subtitle", 2019);
+        TestUtils.persist(testEntityManager, book);
+
+        for (int i = 0; i < 3; i++) {
+            User user = TestUtils
+                .createUserWithData(null, "username" + i, "a name", "password");
+            user.addBook(book);
+            TestUtils.persist(testEntityManager, user);
+        }
+
+        testEntityManager.clear();
+
+        Slice<User> users = userRepository
+            .findSliceWithBooks(PageRequest.of(0, 2, Sort.by(Order.desc("username"))));
+
+        Assertions.assertThat(users.hasNext()).isTrue();
+        Assertions.assertThat(users.getContent()).extracting(User::getUsername)
+            .containsExactly("username2", "username1");
+        Assertions.assertThat(users.getContent()).allSatisfy(user -> {
+            Assertions.assertThat(testEntityManager.getEntityManager().getEntityManagerFactory()
+                .getPersistenceUnitUtil().isLoaded(user, "books")).isTrue();
+            Assertions.assertThat(user.getBooks()).hasSize(1);
+        });
+        Assertions.assertThat(userRepository.findAllWithBooks(PageRequest.of(1, 2))
+            .getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    public void givenAUser_whenFindNormalizedUsernamesByIdInIsCalled_thenReturnItsUsername() {
+        testUser = TestUtils.createUserWithData(null, " Some-Username", "a name", "password");
+        TestUtils.persist(testEntityManager, testUser);
+
+        List<String> usernames = userRepository
+            .findNormalizedUsernamesByIdIn(Collections.singletonList(testUser.getId()));
+
+        Assertions.assertThat(usernames).containsExactly("some-username");
+    }
+
     @Test
     public void givenNoUsersInDatabase_whenFindAll_thenReturnEmptyList() {
         Page<User> userList = userRepository.findAll(Pageable.unpaged());
@@ -102,29 +181,28 @@ public class UserRepositoryTest {
     }
 
     @Test
-    public void givenNoUsersInDB_whenFindByBirthDateAndName_thenReturnEmpty() {
-        Page<User> userList = userRepository
-            .findByBirthDateAndName(LocalDate.now().minusYears(2), LocalDate.now().plusYears(2),
-                "nam", PageRequest.of(0, 1));
+    public void givenNoUsersInDB_whenSearchIsCalled_thenReturnEmpty() {
+        List<User> userList = userRepository
+            .search(LocalDate.now().minusYears(2), LocalDate.now().plusYears(2), "nam", null,
+                null, 1);
 
-        Assertions.assertThat(userList.getContent()).isEmpty();
+        Assertions.assertThat(userList).isEmpty();
     }
 
     @Test
-    public void givenUsersInDB_whenFindByBirthDateAndNameIsCalledWithBothDatesAndName_thenReturnFoundResults() {
+    public void givenUsersInDB_whenSearchIsCalledWithBothDatesAndName_thenReturnFoundResults() {
         persistUser();
 
         LocalDate startDate = LocalDate.now().minusYears(2);
         LocalDate endDate = LocalDate.now().plusYears(2);
 
-        Page<User> userList = userRepository
-            .findByBirthDateAndName(startDate, endDate, "nam", PageRequest.of(0, 1));
+        List<User> userList = userRepository.search(startDate, endDate, "nam", null, null, 1);
 
         Assertions
-            .assertThat(userList.getContent())
+            .assertThat(userList)
             .isNotEmpty();
 
-        User foundUser = userList.getContent().get(0);
+        User foundUser = userList.get(0);
 
         Assertions.assertThat(foundUser.getName()).contains("nam");
         Assertions.assertThat(foundUser.getBirthDate()).isBeforeOrEqualTo(endDate);
@@ -133,19 +211,18 @@ public class UserRepositoryTest {
     }
 
     @Test
-    public void givenUsersInDB_whenFindByBirthDateAndNameIsCalledWithOneDate_thenReturnFoundResults() {
+    public void givenUsersInDB_whenSearchIsCalledWithOneDate_thenReturnFoundResults() {
         persistUser();
 
         LocalDate startDate = LocalDate.now().minusYears(2);
 
-        Page<User> userList = userRepository
-            .findByBirthDateAndName(startDate, null, "nam", PageRequest.of(0, 1));
+        List<User> userList = userRepository.search(startDate, null, "nam", null, null, 1);
 
         Assertions
-            .assertThat(userList.getContent())
+            .assertThat(userList)
             .isNotEmpty();
 
-        User foundUser = userList.getContent().get(0);
+        User foundUser = userList.get(0);
 
         Assertions.assertThat(foundUser.getName()).contains("nam");
         Assertions.assertThat(foundUser.getBirthDate()).isAfterOrEqualTo(startDate);
@@ -153,20 +230,63 @@ public class UserRepositoryTest {
     }
 
     @Test
-    public void givenUsersInDB_whenFindByBirthDateAndNameIsCalledWithPartOfName_thenReturnFoundResults() {
+    public void givenUsersInDB_whenSearchIsCalledWithPartOfName_thenReturnFoundResults() {
         persistUser();
 
-        Page<User> userList = userRepository
-            .findByBirthDateAndName(null, null, "nam", PageRequest.of(0, 1));
+        List<User> userList = userRepository.search(null, null, "nam", null, null, 1);
 
         Assertions
-            .assertThat(userList.getContent())
+            .assertThat(userList)
             .isNotEmpty();
 
-        User foundUser = userList.getContent().get(0);
+        User foundUser = userList.get(0);
 
         Assertions.assertThat(foundUser.getName()).contains("nam");
         Assertions.assertThat(foundUser.getUsername()).isEqualTo(testUser.getUsername());
         Assertions.assertThat(foundUser.getBirthDate()).isEqualTo(testUser.getBirthDate());
     }
+
+    @Test
+    public void givenUsersInDB_whenSearchIsCalledAfterAUser_thenReturnTheFollowingOnes() {
+        LocalDate today = LocalDate.now();
+        List<User> users = Arrays.asList(
+            new User(null, "first", "a name", today.minusYears(40)),
+            new User(null, "second", "a name", today.minusYears(20)),
+            new User(null, "third", "a name", today.minusYears(20)),
+            new User(null, "other", "other", today.minusYears(10)));
+        users.forEach(user -> {
+            user.setPassword("password");
+            TestUtils.persist(testEntityManager, user);
+        });
+
+        List<User> firstPage = userRepository.search(null, null, "nam", null, null, 2);
+        User last = firstPage.get(1);
+        List<User> secondPage = userRepository
+            .search(null, null, "nam", last.getBirthDate(), last.getId(), 2);
+
+        Assertions.assertThat(firstPage).extracting(User::getUsername)
+            .containsExactly("first", "second");
+        Assertions.assertThat(secondPage).extracting(User::getUsername)
+            .containsExactly("third");
+    }
+
+    @Test
+    public void givenUsersInDB_whenCountByAgeIsCalled_thenCountThemPerAgeRange() {
+        LocalDate today = LocalDate.now();
+        List<User> users = Arrays.asList(
+            new User(null, "first", "a name", today.minusYears(18)),
+            new User(null, "second", "a name", today.minusYears(18).plusDays(1)),
+            new User(null, "third", "a name", today.minusYears(70)),
+            new User(null, "other", "other", today.minusYears(40)));
+        users.forEach(user -> {
+            user.setPassword("password");
+            TestUtils.persist(testEntityManager, user);
+        });
+
+        Map<String, Long> counts = userRepository.countByAge(null, null, "nam", today);
+
+        Assertions.assertThat(counts).containsExactly(
+            entry("0-17", 1L), entry("18-29", 1L), entry("30-44", 0L), entry("45-64", 0L),
+            entry("65+", 1L));
+    }
 }
@@ -0,0 +1,141 @@
+package wolox.training.services;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.TestUtils;
+import wolox.training.events.EntityChangeEvent;
+import wolox.training.models.Book;
+import wolox.training.repositories.BookRepository;
+
+public class BookCatalogSnapshotTest {
+
+    private BookCatalogSnapshot bookCatalogSnapshot;
+    private BookIndexUpdater bookIndexUpdater;
+    private List<Book> books;
+
+    @Before
+    public void setup() {
+        books = Arrays.asList(
+            createBook(1L, "El planeta", 1845, 33),
+            createBook(2L, "Sudamericana", 1963, 600),
+            createBook(3L, "Gollancz - Sudamericana", 1990, 400),
+            createBook(4L, "Gollancz", 1990, 250));
+        books.get(1).setGenre("Novel");
+
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.findAll()).thenReturn(books);
+        when(bookRepository.findAllByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return books.stream().filter(book -> ids.contains(book.getId()))
+                .collect(Collectors.toList());
+        });
+
+        bookCatalogSnapshot = new BookCatalogSnapshot();
+        ReflectionTestUtils.setField(bookCatalogSnapshot, "bookRepository", bookRepository);
+        bookIndexUpdater = new BookIndexUpdater();
+        ReflectionTestUtils.setField(bookIndexUpdater, "bookRepository", bookRepository);
+        ReflectionTestUtils
+            .setField(bookIndexUpdater, "indexes", Collections.singletonList(bookCatalogSnapshot));
+        bookIndexUpdater.rebuild();
+    }
+
+    @Test
+    public void givenRangeFilters_whenFindAllIsCalled_thenReturnSortedPageOfMatches() {
+        Optional<Page<Book>> page = findAll(null, null, 1900, null, 200,
+            PageRequest.of(0, 2, Sort.by(Sort.Order.desc("year"), Sort.Order.asc("pages"))));
+
+        Assertions.assertThat(page).isPresent();
+        Assertions.assertThat(page.get().getTotalElements()).isEqualTo(3);
+        Assertions.assertThat(page.get().getContent())
+            .extracting(Book::getId)
+            .containsExactly(4L, 3L);
+    }
+
+    @Test
+    public void givenALaterPage_whenFindAllIsCalled_thenSkipTheSortedMatchesBeforeIt() {
+        Optional<Page<Book>> page = findAll(null, null, null, null, null,
+            PageRequest.of(1, 2, Sort.by("pages")));
+
+        Assertions.assertThat(page.get().getTotalElements()).isEqualTo(4);
+        Assertions.assertThat(page.get().getContent())
+            .extracting(Book::getId)
+            .containsExactly(3L, 2L);
+    }
+
+    @Test
+    public void givenAPublisherNoLongerPublished_whenAnotherTakesItsCode_thenMatchOnlyTheNewOne() {
+        bookIndexUpdater.onEntityChange(
+            EntityChangeEvent.deleted(Book.class, Collections.singletonList(1L)));
+        Book renamed = createBook(4L, "Minotauro", 1990, 250);
+        renamed.setVersion(1L);
+        books = Arrays.asList(books.get(1), books.get(2), renamed);
+        bookIndexUpdater.onEntityChange(EntityChangeEvent.updated(Book.class, 4L, 1L));
+
+        Assertions.assertThat(findAll(null, "El planeta", null, null, null, PageRequest.of(0, 10))
+            .get().getTotalElements()).isEqualTo(0);
+        Assertions.assertThat(findAll(null, "Minotauro", null, null, null, PageRequest.of(0, 10))
+            .get().getContent())
+            .extracting(Book::getId)
+            .containsExactly(4L);
+    }
+
+    @Test
+    public void givenAPublisherOfACoEdition_whenFindAllIsCalled_thenMatchIt() {
+        Optional<Page<Book>> page = findAll(null, " sudamericana", null, null, null,
+            PageRequest.of(0, 10));
+
+        Assertions.assertThat(page.get().getContent())
+            .extracting(Book::getId)
+            .containsExactly(2L, 3L);
+    }
+
+    @Test
+    public void givenAnUnknownGenre_whenFindAllIsCalled_thenReturnAnEmptyPage() {
+        Optional<Page<Book>> page = findAll("Terror", null, null, null, null,
+            PageRequest.of(0, 10));
+
+        Assertions.assertThat(page.get().getTotalElements()).isEqualTo(0);
+    }
+
+    @Test
+    public void givenATitleFilter_whenFindAllIsCalled_thenLeaveItToTheDatabase() {
+        Optional<Page<Book>> page = bookCatalogSnapshot.findAll(null, null, null, null, null,
+            null, null, "raven", null, null, null, null, null, PageRequest.of(0, 10));
+
+        Assertions.assertThat(page).isEmpty();
+    }
+
+    @Test
+    public void givenASortOnAnotherField_whenFindAllIsCalled_thenLeaveItToTheDatabase() {
+        Optional<Page<Book>> page = findAll(null, null, null, null, null,
+            PageRequest.of(0, 10, Sort.by("title")));
+
+        Assertions.assertThat(page).isEmpty();
+    }
+
+    private Optional<Page<Book>> findAll(String genre, String publisher, Integer yearFrom,
+        Integer yearTo, Integer pagesMin, PageRequest pageRequest) {
+        return bookCatalogSnapshot.findAll(null, null, genre, null, null, publisher, null, null,
+            null, yearFrom, yearTo, pagesMin, null, pageRequest);
+    }
+
+    private static Book createBook(Long id, String publisher, int year, int pages) {
+        return TestUtils.createBookWithData(id, "isbn-" + id, "an author", "an image", pages,
+            publisher, "a title", "a subtitle", year);
+    }
+}
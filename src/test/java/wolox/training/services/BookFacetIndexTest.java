@@ -0,0 +1,154 @@
+package wolox.training.services;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.TestUtils;
+import wolox.training.events.EntityChangeEvent;
+import wolox.training.models.Book;
+import wolox.training.models.dtos.FacetsDto;
+import wolox.training.repositories.BookRepository;
+
+public class BookFacetIndexTest {
+
+    private BookRepository bookRepository;
+    private BookFacetIndex bookFacetIndex;
+    private BookIndexUpdater bookIndexUpdater;
+    private Book raven;
+    private Book goodOmens;
+
+    @Before
+    public void setup() {
+        raven = TestUtils.createBookWithData(1L, "an-isbn", "Edgar Alan Poe", "an image", 33,
+            "El planeta", "The raven", "Narrative Poem", 1845);
+        raven.setGenre("Poetry");
+        goodOmens = TestUtils.createBookWithData(2L, "other-isbn", "Neil Gaiman - Terry Pratchett",
+            "an image", 400, "Gollancz", "Good Omens", "A novel", 1990);
+
+        bookRepository = mock(BookRepository.class);
+        when(bookRepository.findAll()).thenReturn(Arrays.asList(raven, goodOmens));
+
+        bookFacetIndex = new BookFacetIndex();
+        bookIndexUpdater = new BookIndexUpdater();
+        ReflectionTestUtils.setField(bookIndexUpdater, "bookRepository", bookRepository);
+        ReflectionTestUtils
+            .setField(bookIndexUpdater, "indexes", Collections.singletonList(bookFacetIndex));
+        bookIndexUpdater.rebuild();
+    }
+
+    @Test
+    public void givenNoFilters_whenCountIsCalled_thenCountEveryValue() {
+        FacetsDto facets = count(null, null, null);
+
+        Assertions.assertThat(facets.getTotal()).isEqualTo(2);
+        Assertions.assertThat(facets.getFacets().get("genre")).containsOnly(
+            Assertions.entry("Poetry", 1));
+        Assertions.assertThat(facets.getFacets().get("author")).containsOnly(
+            Assertions.entry("Edgar Alan Poe", 1), Assertions.entry("Neil Gaiman", 1),
+            Assertions.entry("Terry Pratchett", 1));
+    }
+
+    @Test
+    public void givenAnAuthorFilter_whenCountIsCalled_thenCountOnlyTheirBooks() {
+        FacetsDto facets = count(null, null, " terry PRATCHETT");
+
+        Assertions.assertThat(facets.getTotal()).isEqualTo(1);
+        Assertions.assertThat(facets.getFacets().get("year")).containsOnly(
+            Assertions.entry("1990", 1));
+        Assertions.assertThat(facets.getFacets().get("publisher")).containsOnly(
+            Assertions.entry("Gollancz", 1));
+    }
+
+    @Test
+    public void givenAnUnknownValue_whenCountIsCalled_thenReturnNoBooks() {
+        FacetsDto facets = count("Terror", null, null);
+
+        Assertions.assertThat(facets.getTotal()).isEqualTo(0);
+        Assertions.assertThat(facets.getFacets().get("year")).isEmpty();
+    }
+
+    @Test
+    public void givenRanges_whenCountIsCalled_thenCountOnlyBooksWithinThem() {
+        FacetsDto facets = bookFacetIndex
+            .count(null, null, null, null, null, 1900, 2000, 100, null, 10);
+
+        Assertions.assertThat(facets.getTotal()).isEqualTo(1);
+        Assertions.assertThat(facets.getFacets().get("year")).containsOnly(
+            Assertions.entry("1990", 1));
+        Assertions.assertThat(bookFacetIndex
+            .count(null, null, null, null, null, 2000, 1900, null, null, 10).getTotal())
+            .isEqualTo(0);
+    }
+
+    @Test
+    public void givenALimit_whenCountIsCalled_thenReturnTheMostCommonValuesFirst() {
+        Book nightWatch = TestUtils.createBookWithData(3L, "third-isbn", "Terry Pratchett",
+            "an image", 350, "Doubleday", "Night Watch", "A novel", 2002);
+        when(bookRepository.findAll()).thenReturn(Arrays.asList(raven, goodOmens, nightWatch));
+        bookIndexUpdater.rebuild();
+
+        FacetsDto facets = bookFacetIndex
+            .count(null, null, null, null, null, null, null, null, null, 2);
+
+        Assertions.assertThat(facets.getTotal()).isEqualTo(3);
+        Assertions.assertThat(facets.getFacets().get("author")).containsExactly(
+            Assertions.entry("Terry Pratchett", 2), Assertions.entry("Edgar Alan Poe", 1));
+    }
+
+    @Test
+    public void givenAnUpdatedBook_whenItIsCommitted_thenMoveItToItsNewValues() {
+        Book updatedRaven = TestUtils.createBookWithData(1L, "an-isbn", "Edgar Alan Poe",
+            "an image", 33, "El planeta", "The raven", "Narrative Poem", 1849);
+        updatedRaven.setVersion(1L);
+        when(bookRepository.findAllByIdIn(Collections.singletonList(1L)))
+            .thenReturn(Collections.singletonList(updatedRaven));
+
+        bookIndexUpdater.onEntityChange(EntityChangeEvent.updated(Book.class, 1L, 1L));
+
+        Assertions.assertThat(count(null, 1845, null).getTotal())
+            .isEqualTo(0);
+        Assertions.assertThat(count(null, 1849, null).getTotal())
+            .isEqualTo(1);
+    }
+
+    @Test
+    public void givenADeletedBook_whenItIsCommitted_thenStopCountingIt() {
+        bookIndexUpdater.onEntityChange(
+            EntityChangeEvent.deleted(Book.class, Collections.singletonList(2L)));
+
+        FacetsDto facets = count(null, null, null);
+
+        Assertions.assertThat(facets.getTotal()).isEqualTo(1);
+        Assertions.assertThat(facets.getFacets().get("publisher")).containsOnly(
+            Assertions.entry("El planeta", 1));
+    }
+
+    @Test
+    public void givenABookDeletedWhileItIsReloaded_whenTheReloadFinishes_thenKeepItDeleted() {
+        Book updatedRaven = TestUtils.createBookWithData(1L, "an-isbn", "Edgar Alan Poe",
+            "an image", 33, "El planeta", "The raven", "Narrative Poem", 1849);
+        updatedRaven.setVersion(1L);
+        when(bookRepository.findAllByIdIn(Collections.singletonList(1L))).thenAnswer(invocation -> {
+            bookIndexUpdater.onEntityChange(
+                EntityChangeEvent.deleted(Book.class, Collections.singletonList(1L)));
+            return Collections.singletonList(updatedRaven);
+        });
+
+        bookIndexUpdater.onEntityChange(EntityChangeEvent.updated(Book.class, 1L, 1L));
+
+        Assertions.assertThat(count(null, null, null).getTotal())
+            .isEqualTo(1);
+        Assertions.assertThat(count(null, 1849, null).getTotal())
+            .isEqualTo(0);
+    }
+
+    private FacetsDto count(String genre, Integer year, String author) {
+        return bookFacetIndex.count(author, genre, null, null, year, null, null, null, null, 10);
+    }
+}
@@ -0,0 +1,99 @@
+package wolox.training.services;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.TestUtils;
+import wolox.training.events.EntityChangeEvent;
+import wolox.training.models.Book;
+import wolox.training.models.dtos.FacetsDto;
+import wolox.training.models.dtos.SuggestionDto;
+import wolox.training.repositories.BookRepository;
+
+public class BookIndexUpdaterTest {
+
+    private BookRepository bookRepository;
+    private BookFacetIndex bookFacetIndex;
+    private BookSuggestIndex bookSuggestIndex;
+    private BookIndexUpdater bookIndexUpdater;
+    private Book raven;
+    private Book updatedRaven;
+
+    @Before
+    public void setup() {
+        raven = TestUtils.createBookWithData(1L, "an-isbn", "Edgar Alan Poe", "an image", 33,
+            "El planeta", "The raven", "Narrative Poem", 1845);
+        updatedRaven = TestUtils.createBookWithData(1L, "an-isbn", "Edgar Alan Poe",
+            "an image", 33, "El planeta", "Annabel Lee", "Narrative Poem", 1849);
+        updatedRaven.setVersion(1L);
+
+        bookRepository = mock(BookRepository.class);
+        bookFacetIndex = new BookFacetIndex();
+        bookSuggestIndex = new BookSuggestIndex();
+        bookIndexUpdater = new BookIndexUpdater();
+        ReflectionTestUtils.setField(bookIndexUpdater, "bookRepository", bookRepository);
+        ReflectionTestUtils.setField(bookIndexUpdater, "indexes",
+            Arrays.asList(bookFacetIndex, bookSuggestIndex));
+    }
+
+    @Test
+    public void givenSeveralIndexes_whenABookIsUpdated_thenLoadItOnceForAllOfThem() {
+        when(bookRepository.findAll()).thenReturn(Collections.singletonList(raven));
+        when(bookRepository.findAllByIdIn(Collections.singletonList(1L)))
+            .thenReturn(Collections.singletonList(updatedRaven));
+        bookIndexUpdater.rebuild();
+
+        bookIndexUpdater.onEntityChange(EntityChangeEvent.updated(Book.class, 1L, 1L));
+
+        verify(bookRepository, times(1)).findAllByIdIn(Collections.singletonList(1L));
+        Assertions.assertThat(count(null, 1849, null).getTotal())
+            .isEqualTo(1);
+        Assertions.assertThat(bookSuggestIndex.suggest("annabel", 10))
+            .extracting(SuggestionDto::getText)
+            .containsExactly("Annabel Lee");
+    }
+
+    @Test
+    public void givenABookUpdatedWhileRebuilding_whenTheRebuildFinishes_thenKeepTheUpdate() {
+        when(bookRepository.findAllByIdIn(Collections.singletonList(1L)))
+            .thenReturn(Collections.singletonList(updatedRaven));
+        when(bookRepository.findAll()).thenAnswer(invocation -> {
+            bookIndexUpdater.onEntityChange(EntityChangeEvent.updated(Book.class, 1L, 1L));
+            return Collections.singletonList(raven);
+        });
+
+        bookIndexUpdater.rebuild();
+
+        Assertions.assertThat(count(null, 1845, null).getTotal())
+            .isEqualTo(0);
+        Assertions.assertThat(count(null, 1849, null).getTotal())
+            .isEqualTo(1);
+    }
+
+    @Test
+    public void givenABookDeletedWhileRebuilding_whenTheRebuildFinishes_thenKeepItDeleted() {
+        when(bookRepository.findAll()).thenAnswer(invocation -> {
+            bookIndexUpdater.onEntityChange(
+                EntityChangeEvent.deleted(Book.class, Collections.singletonList(1L)));
+            return Collections.singletonList(raven);
+        });
+
+        bookIndexUpdater.rebuild();
+
+        Assertions.assertThat(count(null, null, null).getTotal())
+            .isEqualTo(0);
+        Assertions.assertThat(bookSuggestIndex.suggest("the", 10)).isEmpty();
+    }
+
+    private FacetsDto count(String genre, Integer year, String author) {
+        return bookFacetIndex.count(author, genre, null, null, year, null, null, null, null, 10);
+    }
+}
@@ -0,0 +1,118 @@
+package wolox.training.services;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.TestUtils;
+import wolox.training.events.EntityChangeEvent;
+import wolox.training.models.Book;
+import wolox.training.models.dtos.SuggestionDto;
+import wolox.training.repositories.BookRepository;
+
+public class BookSuggestIndexTest {
+
+    private BookRepository bookRepository;
+    private BookSuggestIndex bookSuggestIndex;
+    private BookIndexUpdater bookIndexUpdater;
+
+    @Before
+    public void setup() {
+        bookRepository = mock(BookRepository.class);
+        when(bookRepository.findAll()).thenReturn(Arrays.asList(
+            createBook(1L, "Terry Pratchett", "The Colour of Magic"),
+            createBook(2L, "Terry Pratchett", "The Light Fantastic"),
+            createBook(3L, "Neil Gaiman - Terry Pratchett", "Good Omens"),
+            createBook(4L, "Edgar Alan Poe", "The raven")));
+
+        bookSuggestIndex = new BookSuggestIndex();
+        bookIndexUpdater = new BookIndexUpdater();
+        ReflectionTestUtils.setField(bookIndexUpdater, "bookRepository", bookRepository);
+        ReflectionTestUtils
+            .setField(bookIndexUpdater, "indexes", Collections.singletonList(bookSuggestIndex));
+        bookIndexUpdater.rebuild();
+    }
+
+    @Test
+    public void givenAPrefix_whenSuggestIsCalled_thenRankByNumberOfBooks() {
+        List<SuggestionDto> suggestions = bookSuggestIndex.suggest("T", 10);
+
+        Assertions.assertThat(suggestions)
+            .extracting(SuggestionDto::getText, SuggestionDto::getBooks)
+            .containsExactly(
+                Assertions.tuple("Terry Pratchett", 3),
+                Assertions.tuple("The Colour of Magic", 1),
+                Assertions.tuple("The Light Fantastic", 1),
+                Assertions.tuple("The raven", 1));
+    }
+
+    @Test
+    public void givenALimit_whenSuggestIsCalled_thenReturnAtMostThatMany() {
+        Assertions.assertThat(bookSuggestIndex.suggest(" the ", 2))
+            .extracting(SuggestionDto::getText)
+            .containsExactly("The Colour of Magic", "The Light Fantastic");
+    }
+
+    @Test
+    public void givenAnUnknownPrefix_whenSuggestIsCalled_thenReturnNothing() {
+        Assertions.assertThat(bookSuggestIndex.suggest("xyz", 10)).isEmpty();
+    }
+
+    @Test
+    public void givenADeletedBook_whenItIsCommitted_thenUpdateTheRanking() {
+        bookIndexUpdater.onEntityChange(
+            EntityChangeEvent.deleted(Book.class, Arrays.asList(1L, 2L)));
+
+        Assertions.assertThat(bookSuggestIndex.suggest("t", 10))
+            .extracting(SuggestionDto::getText, SuggestionDto::getBooks)
+            .containsExactly(
+                Assertions.tuple("Terry Pratchett", 1),
+                Assertions.tuple("The raven", 1));
+    }
+
+    @Test
+    public void givenARenamedBook_whenItIsCommitted_thenSuggestOnlyTheNewTitle() {
+        Book renamed = createBook(4L, "Edgar Alan Poe", "Annabel Lee");
+        renamed.setVersion(1L);
+        when(bookRepository.findAllByIdIn(Collections.singletonList(4L)))
+            .thenReturn(Collections.singletonList(renamed));
+
+        bookIndexUpdater.onEntityChange(EntityChangeEvent.updated(Book.class, 4L, 1L));
+
+        Assertions.assertThat(bookSuggestIndex.suggest("the r", 10)).isEmpty();
+        Assertions.assertThat(bookSuggestIndex.suggest("ann", 10))
+            .extracting(SuggestionDto::getText)
+            .containsExactly("Annabel Lee");
+    }
+
+    @Test
+    public void givenTermsSplittingALabel_whenOneIsDeleted_thenMergeItBackAndKeepTheOther() {
+        Book ravenous = createBook(5L, "Edgar Alan Poe", "The ravenous");
+        when(bookRepository.findAllByIdIn(Collections.singletonList(5L)))
+            .thenReturn(Collections.singletonList(ravenous));
+        bookIndexUpdater.onEntityChange(EntityChangeEvent.updated(Book.class, 5L, 0L));
+
+        Assertions.assertThat(bookSuggestIndex.suggest("the rav", 10))
+            .extracting(SuggestionDto::getText)
+            .containsExactly("The raven", "The ravenous");
+
+        bookIndexUpdater.onEntityChange(
+            EntityChangeEvent.deleted(Book.class, Collections.singletonList(4L)));
+
+        Assertions.assertThat(bookSuggestIndex.suggest("the rave", 10))
+            .extracting(SuggestionDto::getText)
+            .containsExactly("The ravenous");
+        Assertions.assertThat(bookSuggestIndex.suggest("the ravens", 10)).isEmpty();
+    }
+
+    private static Book createBook(Long id, String author, String title) {
+        return TestUtils.createBookWithData(id, "isbn-" + id, author, "an image", 100,
+            "a publisher", title, "a subtitle", 2000);
+    }
+}
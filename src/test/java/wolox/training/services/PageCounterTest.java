@@ -0,0 +1,140 @@
+package wolox.training.services;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.models.dtos.CountedPage;
+
+public class PageCounterTest {
+
+    private List<Long> rows;
+    private AtomicInteger countQueries;
+
+    @Before
+    public void setup() {
+        rows = LongStream.rangeClosed(1, 25).boxed().collect(Collectors.toList());
+        countQueries = new AtomicInteger();
+    }
+
+    @Test
+    public void givenExactStrategy_whenFindIsCalled_thenUseThePageQuery() {
+        CountedPage<Long> page = find(pageCounter("exact"), PageRequest.of(1, 10),
+            Collections.singletonList("rows"));
+
+        Assertions.assertThat(page.getCountType()).isEqualTo(CountedPage.EXACT);
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(25);
+        Assertions.assertThat(page.getContent()).hasSize(10);
+    }
+
+    @Test
+    public void givenCachedStrategy_whenTheSameListingIsCounted_thenReuseTheFirstCount() {
+        PageCounter pageCounter = pageCounter("cached");
+        List<Object> key = Arrays.asList("rows", "filter");
+
+        CountedPage<Long> first = find(pageCounter, PageRequest.of(0, 10), key);
+        rows = LongStream.rangeClosed(1, 30).boxed().collect(Collectors.toList());
+        CountedPage<Long> second = find(pageCounter, PageRequest.of(1, 10), key);
+
+        Assertions.assertThat(first.getCountType()).isEqualTo(CountedPage.EXACT);
+        Assertions.assertThat(second.getCountType()).isEqualTo(CountedPage.APPROXIMATE);
+        Assertions.assertThat(second.getTotalElements()).isEqualTo(25);
+        Assertions.assertThat(countQueries.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenTheLastPage_whenFindIsCalled_thenCountWithoutTheCountQuery() {
+        CountedPage<Long> page = find(pageCounter("cached"), PageRequest.of(2, 10),
+            Collections.singletonList("rows"));
+
+        Assertions.assertThat(page.getCountType()).isEqualTo(CountedPage.EXACT);
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(25);
+        Assertions.assertThat(countQueries.get()).isZero();
+    }
+
+    @Test
+    public void givenEstimatedStrategy_whenTheListingIsUnfiltered_thenUseThePlannerEstimate() {
+        CountedPage<Long> page = find(pageCounter("estimated"), PageRequest.of(0, 10),
+            Arrays.asList("rows", null));
+
+        Assertions.assertThat(page.getCountType()).isEqualTo(CountedPage.APPROXIMATE);
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(24);
+        Assertions.assertThat(countQueries.get()).isZero();
+    }
+
+    @Test
+    public void givenEstimatedStrategy_whenTheListingIsFiltered_thenCountIt() {
+        CountedPage<Long> page = find(pageCounter("estimated"), PageRequest.of(0, 10),
+            Arrays.asList("rows", "filter"));
+
+        Assertions.assertThat(page.getCountType()).isEqualTo(CountedPage.EXACT);
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(25);
+        Assertions.assertThat(countQueries.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenAnEstimateBelowTheRowsSeen_whenFindIsCalled_thenRaiseTheTotal() {
+        CountedPage<Long> page = find(pageCounter("estimated"), PageRequest.of(2, 10),
+            Collections.singletonList("rows"), OptionalLong.of(5));
+
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(25);
+
+        page = find(pageCounter("estimated"), PageRequest.of(1, 10),
+            Collections.singletonList("rows"), OptionalLong.of(5));
+
+        Assertions.assertThat(page.getCountType()).isEqualTo(CountedPage.APPROXIMATE);
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(21);
+    }
+
+    private PageCounter pageCounter(String strategy) {
+        PageCounter pageCounter = new PageCounter();
+        ReflectionTestUtils.setField(pageCounter, "strategyName", strategy);
+        ReflectionTestUtils.setField(pageCounter, "cacheSeconds", 60L);
+        ReflectionTestUtils.setField(pageCounter, "maxEntries", 100L);
+        pageCounter.init();
+        return pageCounter;
+    }
+
+    private CountedPage<Long> find(PageCounter pageCounter, Pageable pageable, List<Object> key) {
+        return find(pageCounter, pageable, key, OptionalLong.of(24));
+    }
+
+    private CountedPage<Long> find(PageCounter pageCounter, Pageable pageable, List<Object> key,
+        OptionalLong estimate) {
+        return pageCounter.find(pageable, key,
+            page -> new PageImpl<>(content(page), page, count()),
+            this::slice,
+            this::count,
+            () -> estimate);
+    }
+
+    private Slice<Long> slice(Pageable pageable) {
+        List<Long> content = content(pageable);
+        return new SliceImpl<>(content, pageable,
+            pageable.getOffset() + content.size() < rows.size());
+    }
+
+    private List<Long> content(Pageable pageable) {
+        return rows.stream()
+            .skip(pageable.getOffset())
+            .limit(pageable.getPageSize())
+            .collect(Collectors.toList());
+    }
+
+    private long count() {
+        countQueries.incrementAndGet();
+        return rows.size();
+    }
+}
@@ -0,0 +1,81 @@
+package wolox.training.services;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Optional;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.TestUtils;
+import wolox.training.events.EntityChangeEvent;
+import wolox.training.models.User;
+import wolox.training.repositories.UserRepository;
+
+public class UserLookupServiceTest {
+
+    private UserLookupService userLookupService;
+    private UserRepository userRepository;
+    private User user;
+
+    @Before
+    public void setup() {
+        user = TestUtils.createUserWithData(1L, "Username", "a name", "password");
+
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findFirstByUsername("username")).thenReturn(Optional.of(user));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        userLookupService = new UserLookupService();
+        ReflectionTestUtils.setField(userLookupService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userLookupService, "maxEntries", 100L);
+        userLookupService.init();
+    }
+
+    @Test
+    public void givenAKnownUsername_whenFindByUsernameIsCalledAgain_thenLoadTheUserById() {
+        userLookupService.findByUsername("username");
+
+        Assertions.assertThat(userLookupService.findByUsername("USERNAME ")).contains(user);
+        verify(userRepository, times(1)).findFirstByUsername("username");
+        verify(userRepository).findById(1L);
+    }
+
+    @Test
+    public void givenAKnownUsername_whenFindWithBooksByUsernameIsCalled_thenFetchTheBooksById() {
+        when(userRepository.findWithBooksById(1L)).thenReturn(Optional.of(user));
+        userLookupService.findByUsername("username");
+
+        Assertions.assertThat(userLookupService.findWithBooksByUsername("username"))
+            .contains(user);
+        verify(userRepository).findWithBooksById(1L);
+        verify(userRepository, never()).findFirstWithBooksByUsername("username");
+    }
+
+    @Test
+    public void givenARenamedUser_whenFindByUsernameIsCalled_thenLookItUpAgain() {
+        userLookupService.findByUsername("username");
+        user.setUsername("other");
+        when(userRepository.findFirstByUsername("username")).thenReturn(Optional.empty());
+
+        Assertions.assertThat(userLookupService.findByUsername("username")).isEmpty();
+        verify(userRepository, times(2)).findFirstByUsername("username");
+    }
+
+    @Test
+    public void givenADeletedUser_whenFindByUsernameIsCalled_thenLookItUpAgain() {
+        userLookupService.findByUsername("username");
+        userLookupService.onEntityChange(
+            EntityChangeEvent.deleted(User.class, Collections.singletonList(1L)));
+
+        userLookupService.findByUsername("username");
+
+        verify(userRepository, times(2)).findFirstByUsername("username");
+        verify(userRepository, never()).findById(1L);
+    }
+}